@@ -0,0 +1,169 @@
+package com.github.omdvd.phonebulkblock;
+
+/**
+ * Batch size and count of concurrent backend calls adapted to observed provider latency and failures, AIMD-style.
+ * Every batch written within target latency grows batch size by fixed step, every batch of the current
+ * concurrency written without failure allows one more concurrent call. Failed batch halves both batch size
+ * and concurrency, slow batch halves batch size. Halves of failed batch written after split do not grow them.
+ * Shared by all workers of runner, safe for many threads.
+ */
+public class AdaptiveBatchController {
+
+    public static final int DEFAULT_MIN_BATCH_SIZE = 50;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 5000;
+    public static final long DEFAULT_TARGET_LATENCY_NANOS = 250_000_000L;
+
+    private final int mMinBatchSize;
+    private final int mMaxBatchSize;
+    private final int mBatchSizeStep;
+    private final int mMaxConcurrency;
+    private final long mTargetLatencyNanos;
+    private int mBatchSize;
+    private int mConcurrency;
+    private int mActiveCalls;
+    private int mSucceededInRound;
+    private long mCountSucceeded, mCountFailed, mCountSlow;
+
+    /**
+     * Controller with default bounds of batch size and target latency
+     *
+     * @param initialBatchSize - batch size of first calls
+     * @param maxConcurrency - max count of concurrent backend calls, usually count of workers
+     */
+    public AdaptiveBatchController(int initialBatchSize, int maxConcurrency) {
+        this(DEFAULT_MIN_BATCH_SIZE, initialBatchSize, DEFAULT_MAX_BATCH_SIZE, maxConcurrency, DEFAULT_TARGET_LATENCY_NANOS);
+    }
+
+    /**
+     * @param minBatchSize - min batch size
+     * @param initialBatchSize - batch size of first calls, limited by min and max batch size
+     * @param maxBatchSize - max batch size
+     * @param maxConcurrency - max count of concurrent backend calls, usually count of workers
+     * @param targetLatencyNanos - max latency of one call in nanoseconds, slower calls shrink batch size
+     * @throws IllegalArgumentException - bounds are not positive or min batch size exceeds max batch size
+     */
+    public AdaptiveBatchController(int minBatchSize, int initialBatchSize, int maxBatchSize, int maxConcurrency, long targetLatencyNanos) throws IllegalArgumentException {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Wrong bounds of batch size: " + minBatchSize + ".." + maxBatchSize);
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrency);
+        }
+        if (targetLatencyNanos < 1) {
+            throw new IllegalArgumentException("Target latency must be positive: " + targetLatencyNanos);
+        }
+        mMinBatchSize = minBatchSize;
+        mMaxBatchSize = maxBatchSize;
+        mBatchSizeStep = minBatchSize;
+        mMaxConcurrency = maxConcurrency;
+        mTargetLatencyNanos = targetLatencyNanos;
+        mBatchSize = Math.max(minBatchSize, Math.min(initialBatchSize, maxBatchSize));
+        mConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return count of numbers to collect before next call
+     */
+    public synchronized int getBatchSize() {
+        return mBatchSize;
+    }
+
+    /**
+     * @return count of backend calls allowed at once
+     */
+    public synchronized int getConcurrency() {
+        return mConcurrency;
+    }
+
+    /**
+     * Wait until one more backend call is allowed
+     *
+     * @throws InterruptedException - thread interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (mActiveCalls >= mConcurrency) {
+            wait();
+        }
+        mActiveCalls++;
+    }
+
+    /**
+     * Finish backend call allowed by {@link #acquire()}
+     */
+    public synchronized void release() {
+        mActiveCalls--;
+        notifyAll();
+    }
+
+    /**
+     * @param batchSize - count of numbers in call
+     * @param latencyNanos - duration of call in nanoseconds
+     */
+    public synchronized void onBatchSucceeded(int batchSize, long latencyNanos) {
+        mCountSucceeded++;
+        if (latencyNanos > mTargetLatencyNanos) {
+            mCountSlow++;
+            mBatchSize = Math.max(mMinBatchSize, Math.min(mBatchSize, batchSize) / 2);
+            return;
+        }
+        // Grow only when batch was full, partial batches at shard end say nothing about limits
+        if (batchSize >= mBatchSize) {
+            mBatchSize = Math.min(mMaxBatchSize, mBatchSize + mBatchSizeStep);
+        }
+        if (++mSucceededInRound >= mConcurrency) {
+            mSucceededInRound = 0;
+            if (mConcurrency < mMaxConcurrency) {
+                mConcurrency++;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Half of failed batch written after split, counted as success but never grows batch size or concurrency
+     *
+     * @param batchSize - count of numbers in call
+     * @param latencyNanos - duration of call in nanoseconds
+     */
+    public synchronized void onBatchRecovered(int batchSize, long latencyNanos) {
+        mCountSucceeded++;
+        if (latencyNanos > mTargetLatencyNanos) {
+            mCountSlow++;
+            mBatchSize = Math.max(mMinBatchSize, Math.min(mBatchSize, batchSize) / 2);
+        }
+    }
+
+    /**
+     * @param batchSize - count of numbers in call
+     * @param latencyNanos - duration of call in nanoseconds
+     */
+    public synchronized void onBatchFailed(int batchSize, long latencyNanos) {
+        mCountFailed++;
+        mSucceededInRound = 0;
+        mBatchSize = Math.max(mMinBatchSize, Math.min(mBatchSize, batchSize) / 2);
+        mConcurrency = Math.max(1, mConcurrency / 2);
+    }
+
+    public synchronized long getCountSucceeded() {
+        return mCountSucceeded;
+    }
+
+    public synchronized long getCountFailed() {
+        return mCountFailed;
+    }
+
+    /**
+     * @return count of succeeded calls slower than target latency
+     */
+    public synchronized long getCountSlow() {
+        return mCountSlow;
+    }
+
+    /**
+     * @return share of failed calls from 0 to 1
+     */
+    public synchronized double getFailureRate() {
+        long count = mCountSucceeded + mCountFailed;
+        return (count == 0) ? 0 : (double) mCountFailed / count;
+    }
+}
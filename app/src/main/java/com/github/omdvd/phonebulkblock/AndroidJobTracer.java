@@ -0,0 +1,55 @@
+package com.github.omdvd.phonebulkblock;
+
+import android.os.Debug;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Trace sections of bulk jobs as android.os.Trace sections and runtime statistics of ART
+ */
+public class AndroidJobTracer implements BulkJobTracer, BulkJobMetrics.RuntimeStats {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    @Override
+    public void beginSection(@NonNull String name) {
+        Trace.beginSection((name.length() > MAX_SECTION_NAME_LENGTH) ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    @Override
+    public long getGcCount() {
+        return readRuntimeStat("art.gc.gc-count");
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        return readRuntimeStat("art.gc.gc-time");
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return readRuntimeStat("art.gc.bytes-allocated");
+    }
+
+    /**
+     * @param name - name of statistic, see {@link Debug#getRuntimeStats()}
+     * @return value or -1 if statistic is not supported
+     */
+    private static long readRuntimeStat(String name) {
+        String value = Debug.getRuntimeStat(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Storage of blocked phone numbers, every method call is one round trip to the storage
+ */
+public interface BlockListBackend {
+
+    /**
+     * Receive entries of blocklist
+     */
+    interface EntryVisitor {
+        /**
+         * @param originalNumber - number as it was added to blocklist
+         * @param e164Number - number in E.164 format, may be null
+         */
+        void visit(@NonNull String originalNumber, @Nullable String e164Number);
+    }
+
+    /**
+     * Read whole blocklist in one query, preferably in ascending order of original numbers
+     * as export of sorted entries is the most compact
+     *
+     * @param visitor - receiver of every entry
+     * @throws Exception - read failed
+     */
+    void readAll(@NonNull EntryVisitor visitor) throws Exception;
+
+    /**
+     * Check presence of number in blocklist
+     *
+     * @param number - phone number
+     * @return true if number is blocked
+     * @throws Exception - check failed
+     */
+    boolean isBlocked(@NonNull String number) throws Exception;
+
+    /**
+     * Add numbers to blocklist in one call
+     *
+     * @param numbers - phone numbers
+     * @return count of numbers added, less than count of numbers means that batch failed
+     * @throws Exception - whole batch failed
+     */
+    int blockBatch(@NonNull List<String> numbers) throws Exception;
+
+    /**
+     * Remove numbers from blocklist in one call
+     *
+     * @param numbers - phone numbers
+     * @return count of numbers removed
+     * @throws Exception - whole batch failed
+     */
+    int unblockBatch(@NonNull List<String> numbers) throws Exception;
+}
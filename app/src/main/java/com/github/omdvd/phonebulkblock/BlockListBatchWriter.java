@@ -0,0 +1,296 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collect numbers into batches and write every batch to blocklist backend with one call.
+ * Failed batch is split in halves and retried until numbers failing on their own are isolated.
+ * Block batch adding fewer numbers than it has, e.g. provider dropping too large transaction, is failed too.
+ * Bisection stops after {@link #MAX_BISECTION_FAILURES} failed halves of one batch, remaining numbers are errors.
+ * Security and state failures, e.g. lost default dialer role or dead provider, fail every call,
+ * so they are thrown at once without retries.
+ * With handle every backend call waits while job is paused, numbers of calls not made after cancel are dropped.
+ */
+public class BlockListBatchWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int MAX_BISECTION_FAILURES = 64;
+
+    private final BlockListBackend mBackend;
+    private final int mAction;
+    private final int mBatchSize;
+    private final List<String> mPending;
+    private final BulkActionCounters mCounters;
+    private final AdaptiveBatchController mController;
+    private BulkJobMetrics mMetrics;
+    private BulkJobHandle mHandle;
+    private int mBisectionFailuresLeft;
+    private long mCountSucceeded, mCountErrors, mCountCancelled, mCountBatches, mCountBatchesFailed;
+
+    /**
+     * @param backend - blocklist backend
+     * @param action - BulkAction.BLOCK or BulkAction.UNBLOCK
+     * @param batchSize - max count of numbers in one backend call
+     * @throws IllegalArgumentException - unsupported action or batch size
+     */
+    public BlockListBatchWriter(@NonNull BlockListBackend backend, int action, int batchSize) throws IllegalArgumentException {
+        this(backend, action, batchSize, null);
+    }
+
+    /**
+     * @param backend - blocklist backend
+     * @param action - BulkAction.BLOCK or BulkAction.UNBLOCK
+     * @param batchSize - max count of numbers in one backend call
+     * @param counters - shared counters to add results of every batch, may be null
+     * @throws IllegalArgumentException - unsupported action or batch size
+     */
+    public BlockListBatchWriter(@NonNull BlockListBackend backend, int action, int batchSize, @Nullable BulkActionCounters counters) throws IllegalArgumentException {
+        this(backend, action, batchSize, counters, null);
+    }
+
+    /**
+     * @param backend - blocklist backend
+     * @param action - BulkAction.BLOCK or BulkAction.UNBLOCK
+     * @param batchSize - max count of numbers in one backend call, used if there is no controller
+     * @param counters - shared counters to add results of every batch, may be null
+     * @param controller - controller of batch size and concurrent calls, may be null for fixed batch size
+     * @throws IllegalArgumentException - unsupported action or batch size
+     */
+    public BlockListBatchWriter(@NonNull BlockListBackend backend, int action, int batchSize, @Nullable BulkActionCounters counters, @Nullable AdaptiveBatchController controller) throws IllegalArgumentException {
+        if (action != BulkAction.BLOCK && action != BulkAction.UNBLOCK) {
+            throw new IllegalArgumentException("Unsupported action: " + BulkAction.getName(action));
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        mBackend = backend;
+        mAction = action;
+        mBatchSize = batchSize;
+        mPending = new ArrayList<>(batchSize);
+        mCounters = counters;
+        mController = controller;
+    }
+
+    /**
+     * Record latency, size and errors of every backend call
+     *
+     * @param metrics - metrics of job, may be null
+     */
+    public void setMetrics(@Nullable BulkJobMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Pause and cancel backend calls with job
+     *
+     * @param handle - handle of job, may be null
+     */
+    public void setHandle(@Nullable BulkJobHandle handle) {
+        mHandle = handle;
+    }
+
+    /**
+     * Add number to current batch, write batch when it is full
+     *
+     * @param number - phone number
+     * @throws SecurityException - access to blocklist denied
+     * @throws IllegalStateException - backend is not available
+     */
+    public void add(@NonNull String number) throws SecurityException, IllegalStateException {
+        mPending.add(number);
+        if (mPending.size() >= ((mController != null) ? mController.getBatchSize() : mBatchSize)) {
+            flush();
+        }
+    }
+
+    /**
+     * Write current batch to backend, numbers still failing after bisection are counted as errors
+     *
+     * @throws SecurityException - access to blocklist denied, batch is not written
+     * @throws IllegalStateException - backend is not available, batch is not written
+     */
+    public void flush() throws SecurityException, IllegalStateException {
+        if (mPending.isEmpty()) {
+            return;
+        }
+        int batchSize = mPending.size();
+        long cancelled = mCountCancelled;
+        int written = write(mPending);
+        long errors = batchSize - written - (mCountCancelled - cancelled);
+        mCountSucceeded += written;
+        mCountErrors += errors;
+        if (mCounters != null) {
+            if (mAction == BulkAction.BLOCK) {
+                mCounters.addBlocked(written);
+            } else {
+                mCounters.addUnblocked(written);
+            }
+            mCounters.addErrors(errors);
+        }
+        mPending.clear();
+    }
+
+    /**
+     * Drop current batch without writing, e.g. when job is cancelled
+     */
+    public void discard() {
+        mCountCancelled += mPending.size();
+        mPending.clear();
+    }
+
+    /**
+     * Write numbers with one backend call, on failure bisect them
+     *
+     * @param numbers - numbers of batch
+     * @return count of written numbers
+     */
+    private int write(List<String> numbers) {
+        int written = call(numbers, true);
+        if (written >= 0) {
+            return written;
+        }
+        mBisectionFailuresLeft = MAX_BISECTION_FAILURES;
+        return bisect(numbers);
+    }
+
+    /**
+     * Write both halves of failed batch separately, bisect further every failed half down to single numbers
+     *
+     * @param numbers - numbers of failed batch
+     * @return count of written numbers
+     */
+    private int bisect(List<String> numbers) {
+        int batchSize = numbers.size();
+        if (batchSize == 1 || mBisectionFailuresLeft <= 0) {
+            return 0;
+        }
+        List<String> first = numbers.subList(0, batchSize / 2);
+        List<String> second = numbers.subList(batchSize / 2, batchSize);
+        int writtenFirst = call(first, false);
+        int writtenSecond = call(second, false);
+        if (writtenFirst < 0) {
+            mBisectionFailuresLeft--;
+        }
+        if (writtenSecond < 0) {
+            mBisectionFailuresLeft--;
+        }
+        return ((writtenFirst >= 0) ? writtenFirst : bisect(first)) + ((writtenSecond >= 0) ? writtenSecond : bisect(second));
+    }
+
+    /**
+     * Write numbers with one backend call
+     *
+     * @param numbers - numbers of batch
+     * @param firstAttempt - true for batch collected by writer, false for half of failed batch
+     * @return count of written numbers, 0 if call was cancelled, -1 if call failed
+     * @throws SecurityException - access to blocklist denied
+     * @throws IllegalStateException - backend is not available
+     */
+    private int call(List<String> numbers, boolean firstAttempt) throws SecurityException, IllegalStateException {
+        int batchSize = numbers.size();
+        if (mHandle != null && !mHandle.awaitRunning()) {
+            mCountCancelled += batchSize;
+            return 0;
+        }
+        boolean acquired;
+        try {
+            acquired = acquire();
+        } catch (InterruptedException e) {
+            // Worker is cancelled while waiting for its turn
+            Thread.currentThread().interrupt();
+            mCountCancelled += batchSize;
+            return 0;
+        }
+        mCountBatches++;
+        String operation = (mAction == BulkAction.BLOCK) ? BulkJobMetrics.OP_BLOCK_BATCH : BulkJobMetrics.OP_UNBLOCK_BATCH;
+        if (mMetrics != null) {
+            mMetrics.recordBatchSize(batchSize);
+        }
+        long start = (mMetrics != null) ? mMetrics.beginOperation(operation) : System.nanoTime();
+        try {
+            int written = (mAction == BulkAction.BLOCK)
+                    ? mBackend.blockBatch(numbers)
+                    : mBackend.unblockBatch(numbers);
+            // Unblocked number may be absent in blocklist, but every blocked number must be added
+            if (mAction == BulkAction.BLOCK && written < batchSize) {
+                throw new Exception("Added " + written + " of " + batchSize + " numbers");
+            }
+            if (mController != null) {
+                // Half of failed batch says nothing about larger batches, it must not grow batch size
+                if (firstAttempt) {
+                    mController.onBatchSucceeded(batchSize, System.nanoTime() - start);
+                } else {
+                    mController.onBatchRecovered(batchSize, System.nanoTime() - start);
+                }
+            }
+            return Math.max(0, Math.min(written, batchSize));
+        } catch (SecurityException | IllegalStateException e) {
+            mCountBatchesFailed++;
+            if (mMetrics != null) {
+                mMetrics.recordError(e);
+            }
+            if (mController != null) {
+                mController.onBatchFailed(batchSize, System.nanoTime() - start);
+            }
+            throw e;
+        } catch (Exception e) {
+            mCountBatchesFailed++;
+            if (mMetrics != null) {
+                mMetrics.recordError(e);
+            }
+            // Retries of halves fail on the same bad numbers, only first failure says that batch is too large
+            if (mController != null && firstAttempt) {
+                mController.onBatchFailed(batchSize, System.nanoTime() - start);
+            }
+            return -1;
+        } finally {
+            if (mMetrics != null) {
+                mMetrics.endOperation(operation, start);
+            }
+            if (acquired) {
+                mController.release();
+            }
+        }
+    }
+
+    /**
+     * Wait for permission of controller to call backend
+     *
+     * @return true if call was allowed and must be released
+     * @throws InterruptedException - thread interrupted while waiting
+     */
+    private boolean acquire() throws InterruptedException {
+        if (mController == null) {
+            return false;
+        }
+        mController.acquire();
+        return true;
+    }
+
+    public long getCountSucceeded() {
+        return mCountSucceeded;
+    }
+
+    public long getCountErrors() {
+        return mCountErrors;
+    }
+
+    /**
+     * @return count of numbers dropped without backend call because job was cancelled
+     */
+    public long getCountCancelled() {
+        return mCountCancelled;
+    }
+
+    public long getCountBatches() {
+        return mCountBatches;
+    }
+
+    public long getCountBatchesFailed() {
+        return mCountBatchesFailed;
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stream numbers back from file written by {@link BlockListFileWriter}, gzip compression is detected.
+ * Memory used does not depend on count of numbers.
+ */
+public class BlockListFileReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    private final DataInputStream mInput;
+    private final char[] mDigits = new char[PatternIndex.MAX_DIGITS + 1];
+    private boolean mRunOpen;
+    private boolean mRunPlus;
+    private int mRunDigits;
+    private long mRunLast;
+    private long mCount;
+    private boolean mEnd;
+
+    /**
+     * @param input - input stream, closed with reader
+     * @throws IOException - read failed, stream is not blocklist file or of other version
+     */
+    public BlockListFileReader(@NonNull InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int magic = (buffered.read() << 8) | buffered.read();
+        buffered.reset();
+        InputStream stream = (magic == GZIP_MAGIC)
+                ? new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE)
+                : buffered;
+        mInput = new DataInputStream(stream);
+        try {
+            if (mInput.readInt() != BlockListFileWriter.MAGIC) {
+                throw new IOException("Not a blocklist file");
+            }
+            int version = mInput.readUnsignedByte();
+            if (version != BlockListFileWriter.VERSION) {
+                throw new IOException("Unsupported blocklist file version " + version);
+            }
+        } catch (IOException e) {
+            mInput.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read next number
+     *
+     * @return phone number or null at end of file
+     * @throws IOException - read failed, file is truncated or corrupted
+     */
+    @Nullable
+    public String next() throws IOException {
+        while (!mEnd) {
+            if (mRunOpen) {
+                long delta = readVarint(mInput);
+                if (delta > 0) {
+                    mRunLast += delta;
+                    return runNumber();
+                }
+                mRunOpen = false;
+            }
+            int type = mInput.readUnsignedByte();
+            switch (type) {
+                case BlockListFileWriter.RECORD_RUN:
+                    mRunPlus = (mInput.readUnsignedByte() & BlockListFileWriter.FLAG_PLUS) != 0;
+                    mRunDigits = mInput.readUnsignedByte();
+                    mRunLast = readVarint(mInput);
+                    if (mRunDigits < 1 || mRunDigits > PatternIndex.MAX_DIGITS) {
+                        throw new IOException("Corrupted blocklist file: count of digits " + mRunDigits);
+                    }
+                    mRunOpen = true;
+                    return runNumber();
+                case BlockListFileWriter.RECORD_TEXT:
+                    long length = readVarint(mInput);
+                    if (length < 1 || length > BlockListFileWriter.MAX_TEXT_LENGTH) {
+                        throw new IOException("Corrupted blocklist file: text length " + length);
+                    }
+                    byte[] bytes = new byte[(int) length];
+                    mInput.readFully(bytes);
+                    mCount++;
+                    return new String(bytes, StandardCharsets.UTF_8);
+                case BlockListFileWriter.RECORD_END:
+                    long count = readVarint(mInput);
+                    if (count != mCount) {
+                        throw new IOException("Corrupted blocklist file: " + mCount + " numbers read, " + count + " expected");
+                    }
+                    mEnd = true;
+                    break;
+                default:
+                    throw new IOException("Corrupted blocklist file: record type " + type);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return count of numbers read
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInput.close();
+    }
+
+    private String runNumber() throws IOException {
+        if (mRunLast < 0 || mRunLast >= NumberCursor.pow10(mRunDigits)) {
+            throw new IOException("Corrupted blocklist file: value out of " + mRunDigits + " digits");
+        }
+        int start = mRunPlus ? 1 : 0;
+        mDigits[0] = '+';
+        long value = mRunLast;
+        for (int i = start + mRunDigits - 1; i >= start; i--) {
+            mDigits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        mCount++;
+        return new String(mDigits, 0, start + mRunDigits);
+    }
+
+    static long readVarint(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupted blocklist file: varint is too long");
+    }
+}
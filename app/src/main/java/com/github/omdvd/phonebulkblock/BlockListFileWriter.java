@@ -0,0 +1,168 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stream blocklist numbers into compact file, memory used does not depend on count of numbers.
+ * Numbers of the same shape (leading '+', count of digits) following in ascending order form a run
+ * stored as delta-encoded values, so sorted input is the most compact. Other numbers are stored as text.
+ *
+ * File format, optionally gzip compressed:
+ * int magic, byte version, then records, every record starts with byte type:
+ * RECORD_RUN - byte flags (FLAG_PLUS), byte count of digits, varint first value,
+ * varint deltas to previous value, varint 0 ends run;
+ * RECORD_TEXT - varint length, UTF-8 bytes of number;
+ * RECORD_END - varint count of numbers in file, nothing follows.
+ * Varints are unsigned LEB128.
+ */
+public class BlockListFileWriter implements Closeable {
+
+    public static final int MAGIC = 0x50424246; // "PBBF"
+    public static final int VERSION = 1;
+
+    static final int RECORD_END = 0;
+    static final int RECORD_RUN = 1;
+    static final int RECORD_TEXT = 2;
+    static final int FLAG_PLUS = 1;
+    static final int MAX_TEXT_LENGTH = 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream mOutput;
+    private boolean mRunOpen;
+    private boolean mRunPlus;
+    private int mRunDigits;
+    private long mRunLast;
+    private long mCount;
+    private boolean mClosed;
+
+    /**
+     * @param output - output stream, closed with writer
+     * @param compress - true to gzip file
+     * @throws IOException - write of header failed
+     */
+    public BlockListFileWriter(@NonNull OutputStream output, boolean compress) throws IOException {
+        OutputStream stream = compress ? new GZIPOutputStream(output, BUFFER_SIZE) : output;
+        mOutput = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+        mOutput.writeInt(MAGIC);
+        mOutput.writeByte(VERSION);
+    }
+
+    /**
+     * Write number, number equal to previous one is skipped
+     *
+     * @param number - phone number as it is in blocklist
+     * @return true if number was written
+     * @throws IOException - write failed
+     * @throws IllegalArgumentException - number is empty or too long
+     */
+    public boolean write(@NonNull CharSequence number) throws IOException, IllegalArgumentException {
+        if (number.length() == 0 || number.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Unsupported length of number: " + number.length());
+        }
+        boolean plus = number.charAt(0) == '+';
+        int digits = number.length() - (plus ? 1 : 0);
+        long value = parseDigits(number, plus ? 1 : 0);
+        if (value < 0) {
+            byte[] bytes = number.toString().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_TEXT_LENGTH) {
+                throw new IllegalArgumentException("Unsupported length of number: " + bytes.length + " bytes");
+            }
+            closeRun();
+            mOutput.writeByte(RECORD_TEXT);
+            writeVarint(mOutput, bytes.length);
+            mOutput.write(bytes);
+        } else if (mRunOpen && mRunPlus == plus && mRunDigits == digits && value >= mRunLast) {
+            if (value == mRunLast) {
+                return false;
+            }
+            writeVarint(mOutput, value - mRunLast);
+            mRunLast = value;
+        } else {
+            closeRun();
+            mOutput.writeByte(RECORD_RUN);
+            mOutput.writeByte(plus ? FLAG_PLUS : 0);
+            mOutput.writeByte(digits);
+            writeVarint(mOutput, value);
+            mRunOpen = true;
+            mRunPlus = plus;
+            mRunDigits = digits;
+            mRunLast = value;
+        }
+        mCount++;
+        return true;
+    }
+
+    /**
+     * @return count of numbers written
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Write end of file and close output
+     *
+     * @throws IOException - write failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            closeRun();
+            mOutput.writeByte(RECORD_END);
+            writeVarint(mOutput, mCount);
+        } finally {
+            mOutput.close();
+        }
+    }
+
+    private void closeRun() throws IOException {
+        if (mRunOpen) {
+            writeVarint(mOutput, 0);
+            mRunOpen = false;
+        }
+    }
+
+    /**
+     * Value of number consisting only of digits
+     *
+     * @param number - phone number
+     * @param start - index of first digit
+     * @return value or -1 if number has other chars or is too long
+     */
+    private static long parseDigits(CharSequence number, int start) {
+        int length = number.length() - start;
+        if (length < 1 || length > PatternIndex.MAX_DIGITS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static void writeVarint(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+}
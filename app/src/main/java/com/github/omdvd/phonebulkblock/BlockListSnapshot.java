@@ -0,0 +1,135 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocked numbers of one job plan read from blocklist with single query.
+ * Numbers are kept as {@link NumberRangeSet}, so memory is proportional to count of blocked ranges.
+ * Blocked numbers stored in other form than plan numbers keep their original numbers, as provider
+ * deletes number only by original or E.164 form.
+ */
+public class BlockListSnapshot {
+
+    private final NumberRangeSet mBlocked;
+    private final Map<Long, List<String>> mOriginals;
+
+    /**
+     * @param blocked - blocked numbers
+     */
+    public BlockListSnapshot(@NonNull NumberRangeSet blocked) {
+        this(blocked, Collections.emptyMap());
+    }
+
+    /**
+     * @param blocked - blocked numbers
+     * @param originals - original numbers by key of plan number, only for numbers stored in other form
+     */
+    public BlockListSnapshot(@NonNull NumberRangeSet blocked, @NonNull Map<Long, List<String>> originals) {
+        mBlocked = blocked;
+        mOriginals = originals;
+    }
+
+    /**
+     * Read blocklist and keep numbers belonging to plan
+     *
+     * @param backend - blocklist backend
+     * @param plan - ranges of numbers
+     * @return snapshot
+     * @throws Exception - read failed
+     */
+    public static BlockListSnapshot read(@NonNull BlockListBackend backend, @NonNull JobPlan plan) throws Exception {
+        return read(backend, plan, null);
+    }
+
+    /**
+     * Read blocklist and keep numbers belonging to plan. Blocked number written in national form
+     * without E.164 form from provider is matched by its canonical form, as plan of canonical numbers.
+     *
+     * @param backend - blocklist backend
+     * @param plan - ranges of numbers
+     * @param canonicalizer - canonicalizer of plan numbers, may be null
+     * @return snapshot
+     * @throws Exception - read failed
+     */
+    public static BlockListSnapshot read(@NonNull BlockListBackend backend, @NonNull JobPlan plan, @Nullable NumberCanonicalizer canonicalizer) throws Exception {
+        NumberRangeSet numbers = plan.getNumbers();
+        NumberRangeSet.Builder blocked = new NumberRangeSet.Builder();
+        NumberRangeSet.Builder blockedAsPlanned = new NumberRangeSet.Builder();
+        Map<Long, List<String>> originals = new HashMap<>();
+        backend.readAll((originalNumber, e164Number) -> {
+            long key = PatternIndex.toKey(originalNumber);
+            boolean flagOriginalForm = key != PatternIndex.NO_KEY && numbers.contains(key);
+            if (!flagOriginalForm) {
+                key = (e164Number != null) ? PatternIndex.toKey(e164Number) : PatternIndex.NO_KEY;
+            }
+            if (canonicalizer != null && (key == PatternIndex.NO_KEY || !numbers.contains(key))) {
+                key = PatternIndex.toKey(canonicalizer.canonicalize(originalNumber));
+            }
+            if (key != PatternIndex.NO_KEY && numbers.contains(key)) {
+                blocked.add(key);
+                // Separators or missing '+' differ from plan number too, e.g. "8 (495) 123-45-67"
+                if (flagOriginalForm && originalNumber.equals(plan.getNumber(plan.indexOf(originalNumber)))) {
+                    blockedAsPlanned.add(key);
+                } else {
+                    originals.computeIfAbsent(key, k -> new ArrayList<>(1)).add(originalNumber);
+                }
+            }
+        });
+        // Number stored both in plan form and in other forms is deleted in every form
+        NumberRangeSet planned = blockedAsPlanned.build();
+        for (Map.Entry<Long, List<String>> entry : originals.entrySet()) {
+            long key = entry.getKey();
+            if (planned.contains(key)) {
+                String digits = String.format("%0" + PatternIndex.keyDigits(key) + "d", PatternIndex.keyValue(key));
+                entry.getValue().add(plan.getNumber(plan.indexOf(digits)));
+            }
+        }
+        return new BlockListSnapshot(blocked.build(), originals);
+    }
+
+    /**
+     * @return blocked numbers of plan
+     */
+    public NumberRangeSet getBlocked() {
+        return mBlocked;
+    }
+
+    /**
+     * @param number - phone number, digits are compared ignoring '+' and separators
+     * @return true if number is blocked
+     */
+    public boolean isBlocked(@NonNull CharSequence number) {
+        return mBlocked.contains(number);
+    }
+
+    /**
+     * @param number - blocked number of plan
+     * @return original numbers stored in blocklist for number, null if number is stored as it is written in plan
+     */
+    @Nullable
+    public List<String> getOriginalNumbers(@NonNull CharSequence number) {
+        return mOriginals.isEmpty() ? null : mOriginals.get(PatternIndex.toKey(number));
+    }
+
+    /**
+     * @param range - range of numbers
+     * @return count of blocked numbers in range
+     */
+    public long countBlocked(@NonNull NumberRange range) {
+        return mBlocked.subSet(range).getSize();
+    }
+
+    /**
+     * @return count of blocked numbers of plan
+     */
+    public long countBlocked() {
+        return mBlocked.getSize();
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Export blocklist into file and import it back, both stream numbers and use constant memory
+ */
+public class BlockListTransfer {
+
+    private BlockListTransfer() {
+    }
+
+    /**
+     * Stream all blocklist entries into file
+     *
+     * @param backend - blocklist backend
+     * @param output - output stream, closed when export is done
+     * @param compress - true to gzip file
+     * @return count of exported numbers
+     * @throws Exception - read of blocklist or write of file failed
+     */
+    public static long exportTo(@NonNull BlockListBackend backend, @NonNull OutputStream output, boolean compress) throws Exception {
+        try (BlockListFileWriter writer = new BlockListFileWriter(output, compress)) {
+            IOException[] failure = new IOException[1];
+            backend.readAll((originalNumber, e164Number) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    writer.write(originalNumber);
+                } catch (IOException e) {
+                    failure[0] = e;
+                } catch (IllegalArgumentException e) {
+                    // Empty or garbage entry, nothing to restore from it
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Stream numbers of file into blocklist through batch writer
+     *
+     * @param input - input stream, closed when import is done
+     * @param writer - batch writer of BulkAction.BLOCK, flushed when import is done
+     * @param runner - runner of import, its stop request ends import, every number read is counted as processed in its counters
+     * @return count of numbers read from file
+     * @throws IOException - read of file failed or file is corrupted
+     */
+    public static long importFrom(@NonNull InputStream input, @NonNull BlockListBatchWriter writer, @NonNull BulkActionRunner runner) throws IOException {
+        try (BlockListFileReader reader = new BlockListFileReader(input)) {
+            String number;
+            while (!runner.isStopped() && (number = reader.next()) != null) {
+                writer.add(number);
+                runner.getCounters().addProcessed(1);
+            }
+            return reader.getCount();
+        } finally {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.omdvd.phonebulkblock;
+
+/**
+ * Actions with phone blocklist
+ */
+public final class BulkAction {
+    public static final int BLOCK = 0;
+    public static final int CHECK = 1;
+    public static final int UNBLOCK = 2;
+
+    private BulkAction() {
+    }
+
+    /**
+     * Get text name of action
+     *
+     * @param action - action with blocklist
+     * @return name of action
+     * @throws IllegalArgumentException - unknown action
+     */
+    public static String getName(int action) throws IllegalArgumentException {
+        switch (action) {
+            case BLOCK: return "block";
+            case CHECK: return "check";
+            case UNBLOCK: return "unblock";
+            default: throw new IllegalArgumentException("Unknown action: " + action);
+        }
+    }
+
+    /**
+     * Parse action from its name or number
+     *
+     * @param text - name of action, e.g. "block", or its number
+     * @return action with blocklist
+     * @throws IllegalArgumentException - unknown action
+     */
+    public static int parse(String text) throws IllegalArgumentException {
+        if (text == null) {
+            throw new IllegalArgumentException("Missing action");
+        }
+        String name = text.trim();
+        for (int action = BLOCK; action <= UNBLOCK; action++) {
+            if (getName(action).equalsIgnoreCase(name) || Integer.toString(action).equals(name)) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Unknown action: " + text);
+    }
+}
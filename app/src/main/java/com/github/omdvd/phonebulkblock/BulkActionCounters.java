@@ -0,0 +1,115 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of bulk action, safe to update from many worker threads and to read from UI thread.
+ * Counters may have parent, every value added to child counters is also added to parent.
+ */
+public class BulkActionCounters {
+
+    private final LongAdder mProcessed = new LongAdder();
+    private final LongAdder mBlocked = new LongAdder();
+    private final LongAdder mNotBlocked = new LongAdder();
+    private final LongAdder mUnblocked = new LongAdder();
+    private final LongAdder mErrors = new LongAdder();
+    private final LongAdder mSkipped = new LongAdder();
+    private final BulkActionCounters mParent;
+
+    public BulkActionCounters() {
+        this(null);
+    }
+
+    /**
+     * @param parent - counters to receive copy of every added value, may be null
+     */
+    public BulkActionCounters(@Nullable BulkActionCounters parent) {
+        mParent = parent;
+    }
+
+    public void addProcessed(long count) {
+        mProcessed.add(count);
+        if (mParent != null) {
+            mParent.addProcessed(count);
+        }
+    }
+
+    public void addBlocked(long count) {
+        mBlocked.add(count);
+        if (mParent != null) {
+            mParent.addBlocked(count);
+        }
+    }
+
+    public void addNotBlocked(long count) {
+        mNotBlocked.add(count);
+        if (mParent != null) {
+            mParent.addNotBlocked(count);
+        }
+    }
+
+    public void addUnblocked(long count) {
+        mUnblocked.add(count);
+        if (mParent != null) {
+            mParent.addUnblocked(count);
+        }
+    }
+
+    public void addErrors(long count) {
+        mErrors.add(count);
+        if (mParent != null) {
+            mParent.addErrors(count);
+        }
+    }
+
+    public void addSkipped(long count) {
+        mSkipped.add(count);
+        if (mParent != null) {
+            mParent.addSkipped(count);
+        }
+    }
+
+    /**
+     * Add all values of other counters
+     *
+     * @param other - counters to add
+     */
+    public void add(@NonNull BulkActionCounters other) {
+        addProcessed(other.getProcessed());
+        addBlocked(other.getBlocked());
+        addNotBlocked(other.getNotBlocked());
+        addUnblocked(other.getUnblocked());
+        addErrors(other.getErrors());
+        addSkipped(other.getSkipped());
+    }
+
+    public long getProcessed() {
+        return mProcessed.sum();
+    }
+
+    public long getBlocked() {
+        return mBlocked.sum();
+    }
+
+    public long getNotBlocked() {
+        return mNotBlocked.sum();
+    }
+
+    public long getUnblocked() {
+        return mUnblocked.sum();
+    }
+
+    public long getErrors() {
+        return mErrors.sum();
+    }
+
+    /**
+     * @return count of numbers not written because they were already in desired state
+     */
+    public long getSkipped() {
+        return mSkipped.sum();
+    }
+}
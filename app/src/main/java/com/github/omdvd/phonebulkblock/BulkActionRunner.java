@@ -0,0 +1,378 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run bulk action over all numbers of job plan.
+ * Every range of plan is split into fixed shards, shards are processed by pool of workers,
+ * every worker writes its numbers in batches and adds results to shared counters.
+ * Runner is paused, resumed and cancelled by its {@link BulkJobHandle}. After cancel run waits
+ * for interrupted workers at most STOP_GRACE_MILLIS, worker still blocked in backend call is abandoned.
+ */
+public class BulkActionRunner {
+
+    public static final int DEFAULT_WORKERS_COUNT = 4;
+    public static final long DEFAULT_SHARD_SIZE = 10000;
+    public static final long STOP_GRACE_MILLIS = 100;
+
+    /**
+     * Receive results of every fully processed shard, called from worker threads one at a time
+     * and never after run returned
+     */
+    public interface ShardListener {
+        void onShardCompleted(@NonNull NumberRange shard, @NonNull BulkActionCounters shardCounters);
+    }
+
+    private final BlockListBackend mBackend;
+    private final int mWorkersCount;
+    private final int mBatchSize;
+    private final long mShardSize;
+    private final BulkActionCounters mCounters;
+    private final BulkJobHandle mHandle;
+    private boolean mUseSnapshot;
+    private ThreadFactory mThreadFactory;
+    private AdaptiveBatchController mBatchController;
+    private BulkJobMetrics mMetrics;
+    private NumberCanonicalizer mCanonicalizer;
+
+    /**
+     * @param backend - blocklist backend, must be safe for calls from many threads
+     * @param workersCount - count of worker threads
+     * @param batchSize - max count of numbers in one backend call
+     * @param shardSize - count of numbers processed by worker at once
+     * @throws IllegalArgumentException - workers count, batch size or shard size is not positive
+     */
+    public BulkActionRunner(@NonNull BlockListBackend backend, int workersCount, int batchSize, long shardSize) throws IllegalArgumentException {
+        if (workersCount < 1) {
+            throw new IllegalArgumentException("Workers count must be positive: " + workersCount);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("Shard size must be positive: " + shardSize);
+        }
+        mBackend = backend;
+        mWorkersCount = workersCount;
+        mBatchSize = batchSize;
+        mShardSize = shardSize;
+        mCounters = new BulkActionCounters();
+        mHandle = new BulkJobHandle();
+        mUseSnapshot = true;
+        mThreadFactory = Executors.defaultThreadFactory();
+        mMetrics = new BulkJobMetrics();
+    }
+
+    /**
+     * Read snapshot of blocklist with one query before run. Check action counts numbers against snapshot
+     * instead of query per number, block and unblock actions write only numbers not in desired state yet.
+     *
+     * @param useSnapshot - true to use snapshot
+     */
+    public void setUseSnapshot(boolean useSnapshot) {
+        mUseSnapshot = useSnapshot;
+    }
+
+    /**
+     * Adapt batch size and count of concurrent writes to observed latency and failures of backend.
+     * Without controller every batch has fixed size and all workers write at once.
+     *
+     * @param batchController - controller shared by all workers, may be null for fixed batch size
+     */
+    public void setBatchController(@Nullable AdaptiveBatchController batchController) {
+        mBatchController = batchController;
+    }
+
+    @Nullable
+    public AdaptiveBatchController getBatchController() {
+        return mBatchController;
+    }
+
+    /**
+     * Factory of worker threads, e.g. to set priority of workers or to measure them
+     *
+     * @param threadFactory - factory of worker threads
+     */
+    public void setThreadFactory(@NonNull ThreadFactory threadFactory) {
+        mThreadFactory = threadFactory;
+    }
+
+    /**
+     * Metrics to record latencies, errors, batch sizes and queue depth of run, e.g. with tracer of sections
+     *
+     * @param metrics - metrics of job
+     */
+    public void setMetrics(@NonNull BulkJobMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Canonicalizer of plan numbers, blocked numbers stored in national form are found in snapshot by their canonical form
+     *
+     * @param canonicalizer - canonicalizer used to plan job, may be null
+     */
+    public void setCanonicalizer(@Nullable NumberCanonicalizer canonicalizer) {
+        mCanonicalizer = canonicalizer;
+    }
+
+    @NonNull
+    public BulkJobMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    public BulkActionCounters getCounters() {
+        return mCounters;
+    }
+
+    public long getShardSize() {
+        return mShardSize;
+    }
+
+    /**
+     * @return handle to pause, resume or cancel run and to get completed numbers
+     */
+    @NonNull
+    public BulkJobHandle getHandle() {
+        return mHandle;
+    }
+
+    /**
+     * Cancel run, see {@link BulkJobHandle#cancel()}
+     */
+    public void stop() {
+        mHandle.cancel();
+    }
+
+    public boolean isStopped() {
+        return mHandle.isCancelled();
+    }
+
+    /**
+     * Process all numbers of plan, blocks until all shards are done or runner is stopped
+     *
+     * @param plan - ranges of numbers
+     * @param action - action with blocklist
+     * @throws InterruptedException - calling thread interrupted while waiting for workers
+     */
+    public void run(@NonNull JobPlan plan, int action) throws InterruptedException {
+        run(plan, action, null);
+    }
+
+    /**
+     * Process all numbers of plan, blocks until all shards are done or runner is stopped.
+     * Numbers of every fully processed shard are added to completed numbers of handle.
+     *
+     * @param plan - ranges of numbers
+     * @param action - action with blocklist
+     * @param listener - listener of completed shards, may be null
+     * @throws InterruptedException - calling thread interrupted while waiting for workers
+     */
+    public void run(@NonNull JobPlan plan, int action, @Nullable ShardListener listener) throws InterruptedException {
+        BulkAction.getName(action); // throws on unknown action
+        BlockListSnapshot snapshot = null;
+        if (mUseSnapshot) {
+            long start = mMetrics.beginOperation(BulkJobMetrics.OP_SNAPSHOT);
+            try {
+                snapshot = BlockListSnapshot.read(mBackend, plan, mCanonicalizer);
+            } catch (Exception e) {
+                // Fall back to query or write per number
+                mMetrics.recordError(e);
+                snapshot = null;
+            } finally {
+                mMetrics.endOperation(BulkJobMetrics.OP_SNAPSHOT, start);
+            }
+        }
+        BlockListSnapshot shardSnapshot = snapshot;
+        ShardReporter reporter = new ShardReporter(listener);
+        List<Future<?>> shards = new ArrayList<>();
+        // Cancel interrupts workers blocked in backend calls or waiting for controller, queued shards never start
+        Runnable cancelShards = () -> {
+            synchronized (shards) {
+                for (Future<?> shard : shards) {
+                    shard.cancel(true);
+                }
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(mWorkersCount, mThreadFactory);
+        mHandle.addCancelListener(cancelShards);
+        try {
+            for (NumberRange range : plan.getRanges()) {
+                // Shards never cross range bounds
+                for (long from = 0; from < range.getSize() && !mHandle.isCancelled(); from += mShardSize) {
+                    long to = Math.min(range.getSize(), from + mShardSize);
+                    NumberRange shard = new NumberRange(range.hasPlus(), range.getDigits(), range.getFirst() + from, range.getFirst() + to - 1);
+                    mMetrics.onShardQueued();
+                    synchronized (shards) {
+                        shards.add(executor.submit(() -> runShard(shard, action, shardSnapshot, reporter)));
+                    }
+                }
+            }
+            if (mHandle.isCancelled()) {
+                cancelShards.run();
+            }
+            for (Future<?> shard : shards) {
+                try {
+                    shard.get();
+                } catch (CancellationException e) {
+                    // Worker may be still in backend call, its shard is not reported
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Shard failed", e.getCause());
+                }
+            }
+        } finally {
+            mHandle.removeCancelListener(cancelShards);
+            executor.shutdownNow();
+            if (mHandle.isCancelled()) {
+                // Let workers finish pending counters and report shards completed just before cancel
+                try {
+                    executor.awaitTermination(STOP_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reporter.close();
+        }
+    }
+
+    /**
+     * Run shard taken from queue by worker, measured as one operation
+     */
+    private void runShard(NumberRange shard, int action, BlockListSnapshot snapshot, ShardReporter reporter) {
+        mMetrics.onShardStarted();
+        if (!mHandle.awaitRunning()) {
+            return;
+        }
+        long start = mMetrics.beginOperation(BulkJobMetrics.OP_SHARD);
+        try {
+            processShard(shard, action, snapshot, reporter);
+        } finally {
+            mMetrics.endOperation(BulkJobMetrics.OP_SHARD, start);
+        }
+    }
+
+    /**
+     * Process numbers of one shard. With snapshot only numbers not in desired state yet are written.
+     *
+     * @param shard - range of shard
+     * @param action - action with blocklist
+     * @param snapshot - snapshot of blocklist, may be null
+     * @param reporter - reporter of completed shards
+     */
+    private void processShard(NumberRange shard, int action, BlockListSnapshot snapshot, ShardReporter reporter) {
+        BulkActionCounters shardCounters = new BulkActionCounters(mCounters);
+        NumberRangeSet numbers = NumberRangeSet.of(shard);
+        if (snapshot != null) {
+            NumberRangeSet blocked = snapshot.getBlocked().subSet(shard);
+            if (action == BulkAction.CHECK) {
+                shardCounters.addBlocked(blocked.getSize());
+                shardCounters.addNotBlocked(shard.getSize() - blocked.getSize());
+                shardCounters.addProcessed(shard.getSize());
+                reporter.onShardCompleted(shard, shardCounters);
+                return;
+            }
+            numbers = (action == BulkAction.BLOCK) ? numbers.difference(blocked) : blocked;
+            long skipped = shard.getSize() - numbers.getSize();
+            shardCounters.addSkipped(skipped);
+            shardCounters.addProcessed(skipped);
+        }
+
+        BlockListBatchWriter writer = null;
+        if (action != BulkAction.CHECK) {
+            writer = new BlockListBatchWriter(mBackend, action, mBatchSize, shardCounters, mBatchController);
+            writer.setMetrics(mMetrics);
+            writer.setHandle(mHandle);
+        }
+        boolean completed = true;
+        for (NumberRange range : numbers) {
+            NumberCursor cursor = range.withPlus(shard.hasPlus()).cursor(0, range.getSize());
+            while (cursor.hasNext()) {
+                if (!mHandle.awaitRunning()) {
+                    completed = false;
+                    break;
+                }
+                CharSequence number = cursor.next();
+                if (writer != null) {
+                    // Number stored in other form is deleted by its original form, every stored form is deleted
+                    List<String> originals = (action == BulkAction.UNBLOCK && snapshot != null) ? snapshot.getOriginalNumbers(number) : null;
+                    if (originals == null) {
+                        writer.add(number.toString());
+                    } else {
+                        for (String original : originals) {
+                            writer.add(original);
+                        }
+                    }
+                } else {
+                    long start = System.nanoTime();
+                    try {
+                        if (mBackend.isBlocked(number.toString())) {
+                            shardCounters.addBlocked(1);
+                        } else {
+                            shardCounters.addNotBlocked(1);
+                        }
+                    } catch (Exception e) {
+                        shardCounters.addErrors(1);
+                        mMetrics.recordError(e);
+                    }
+                    // Check per number is too frequent for trace sections, only latency is recorded
+                    mMetrics.recordLatency(BulkJobMetrics.OP_CHECK, System.nanoTime() - start);
+                }
+                shardCounters.addProcessed(1);
+            }
+            if (!completed) {
+                break;
+            }
+        }
+
+        if (writer != null) {
+            if (completed) {
+                writer.flush();
+            } else {
+                writer.discard();
+            }
+            // Numbers dropped by cancel were counted when added to writer, they are not processed
+            shardCounters.addProcessed(-writer.getCountCancelled());
+            completed = completed && writer.getCountCancelled() == 0;
+        }
+        if (completed) {
+            reporter.onShardCompleted(shard, shardCounters);
+        }
+    }
+
+    /**
+     * Add completed shards to handle and pass them to listener one at a time until run returns,
+     * so shard finished by interrupted worker after cancel is never reported
+     */
+    private class ShardReporter {
+        private final ShardListener mListener;
+        private boolean mClosed;
+
+        ShardReporter(ShardListener listener) {
+            mListener = listener;
+        }
+
+        synchronized void onShardCompleted(NumberRange shard, BulkActionCounters shardCounters) {
+            if (mClosed) {
+                return;
+            }
+            mHandle.addCompleted(shard);
+            if (mListener != null) {
+                mListener.onShardCompleted(shard, shardCounters);
+            }
+        }
+
+        synchronized void close() {
+            mClosed = true;
+        }
+    }
+}
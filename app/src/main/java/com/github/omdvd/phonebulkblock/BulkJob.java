@@ -0,0 +1,241 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Bulk action over job plan, continued from checkpoint if previous run of the same job was interrupted.
+ * Checkpoint keeps completed numbers as ranges, it is saved periodically while shards complete
+ * and removed when whole job is done. Job is paused, resumed and cancelled by its {@link BulkJobHandle}.
+ */
+public class BulkJob {
+
+    public static final long CHECKPOINT_INTERVAL_MILLIS = 2000;
+    public static final int MAX_REPORTED_RANGES = 5;
+
+    private final JobPlan mPlan;
+    private final int mAction;
+    private final BulkActionRunner mRunner;
+    private final BulkJobCheckpointStore mStore;
+    private final BulkJobHandle mHandle;
+    private final BulkActionCounters mCompletedCounters;
+    private long mStartMillis, mFinishMillis, mResumedProcessed, mLastSaveMillis;
+    private volatile boolean mFinished;
+
+    /**
+     * @param plan - ranges of numbers
+     * @param action - action with blocklist
+     * @param runner - runner for job numbers
+     * @param store - checkpoint store, may be null to run without checkpoints
+     */
+    public BulkJob(@NonNull JobPlan plan, int action, @NonNull BulkActionRunner runner, @Nullable BulkJobCheckpointStore store) {
+        mPlan = plan;
+        mAction = action;
+        mRunner = runner;
+        mStore = store;
+        mHandle = runner.getHandle();
+        mCompletedCounters = new BulkActionCounters();
+        mStartMillis = System.currentTimeMillis();
+        mFinished = false;
+    }
+
+    /**
+     * Run job, blocks until job is done or stopped
+     *
+     * @throws InterruptedException - calling thread interrupted while waiting for workers
+     */
+    public void run() throws InterruptedException {
+        NumberRangeSet completed = NumberRangeSet.EMPTY;
+        if (mStore != null) {
+            BulkJobCheckpoint checkpoint = mStore.load();
+            if (checkpoint != null && checkpoint.isSameJob(mPlan.toString(), mAction)) {
+                completed = checkpoint.getCompleted().intersection(mPlan.getNumbers());
+                synchronized (this) {
+                    mHandle.addCompleted(completed);
+                    mCompletedCounters.add(checkpoint.getCompletedCounters());
+                }
+                mRunner.getCounters().add(checkpoint.getCompletedCounters());
+            }
+        }
+        mResumedProcessed = mRunner.getCounters().getProcessed();
+        mStartMillis = System.currentTimeMillis();
+        mLastSaveMillis = mStartMillis;
+
+        BulkJobMetrics metrics = mRunner.getMetrics();
+        metrics.start();
+        metrics.getTracer().beginSection("job " + BulkAction.getName(mAction));
+        try {
+            mRunner.run(mPlan.minus(completed), mAction, this::onShardCompleted);
+        } finally {
+            metrics.getTracer().endSection();
+            metrics.finish();
+            if (mStore != null) {
+                if (isComplete()) {
+                    mStore.clear();
+                } else {
+                    saveCheckpoint();
+                }
+            }
+            mFinishMillis = System.currentTimeMillis();
+            mFinished = true;
+        }
+    }
+
+    /**
+     * Cancel job, progress of completed shards is kept in checkpoint
+     */
+    public void stop() {
+        mHandle.cancel();
+    }
+
+    /**
+     * @return handle to pause, resume or cancel job
+     */
+    @NonNull
+    public BulkJobHandle getHandle() {
+        return mHandle;
+    }
+
+    private synchronized void onShardCompleted(@NonNull NumberRange shard, @NonNull BulkActionCounters shardCounters) {
+        mCompletedCounters.add(shardCounters);
+        long now = System.currentTimeMillis();
+        if (mStore != null && now - mLastSaveMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+            saveCheckpoint();
+            mLastSaveMillis = now;
+        }
+    }
+
+    private synchronized void saveCheckpoint() {
+        try {
+            mStore.save(new BulkJobCheckpoint(mPlan.toString(), mAction, mHandle.getCompleted(), mCompletedCounters));
+        } catch (IOException e) {
+            // Job continues, only ability to resume is lost
+        }
+    }
+
+    /**
+     * @return true if all numbers of job are completed
+     */
+    public boolean isComplete() {
+        return mHandle.getCompletedCount() == mPlan.getNumbersCount();
+    }
+
+    /**
+     * @return numbers of fully completed shards, including ones completed before job was resumed
+     */
+    public NumberRangeSet getCompleted() {
+        return mHandle.getCompleted();
+    }
+
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    public JobPlan getPlan() {
+        return mPlan;
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public long getNumbersCount() {
+        return mPlan.getNumbersCount();
+    }
+
+    public BulkActionCounters getCounters() {
+        return mRunner.getCounters();
+    }
+
+    /**
+     * @return metrics of current run, see {@link BulkJobReport}
+     */
+    public BulkJobMetrics getMetrics() {
+        return mRunner.getMetrics();
+    }
+
+    @Nullable
+    public AdaptiveBatchController getBatchController() {
+        return mRunner.getBatchController();
+    }
+
+    public long getStartMillis() {
+        return mStartMillis;
+    }
+
+    /**
+     * @return count of numbers processed before job was resumed
+     */
+    public long getResumedProcessed() {
+        return mResumedProcessed;
+    }
+
+    /**
+     * @return duration of current run in milliseconds
+     */
+    public long getDurationMillis() {
+        return (mFinished ? mFinishMillis : System.currentTimeMillis()) - mStartMillis;
+    }
+
+    /**
+     * Text with result of job
+     *
+     * @return text
+     */
+    public String getResultMessage() {
+        BulkActionCounters counters = getCounters();
+        String formattedItem;
+        switch (mAction) {
+            case (BulkAction.CHECK):
+                formattedItem = String.format("%d numbers blocked, %d numbers not blocked.\n%d errors occured.\nElapsed time: %s", counters.getBlocked(), counters.getNotBlocked(), counters.getErrors(), formatSecondsToTime(getDurationMillis()));
+                break;
+            case (BulkAction.BLOCK):
+                formattedItem = String.format("%d numbers added to blocklist, %d skipped as already blocked.\n%d errors occured.\nElapsed time: %s", counters.getBlocked(), counters.getSkipped(), counters.getErrors(), formatSecondsToTime(getDurationMillis()));
+                break;
+            case (BulkAction.UNBLOCK):
+                formattedItem = String.format("%d numbers removed from blocklist, %d skipped as not blocked.\n%d errors occured.\nElapsed time: %s", counters.getUnblocked(), counters.getSkipped(), counters.getErrors(), formatSecondsToTime(getDurationMillis()));
+                break;
+            default:
+                formattedItem = "Something went wrong";
+        }
+        if (mPlan.getDuplicatesCount() > 0) {
+            formattedItem += String.format("\n%d numbers in input, %d duplicate operations eliminated.", mPlan.getInputNumbersCount(), mPlan.getDuplicatesCount());
+        }
+        if (mResumedProcessed > 0) {
+            formattedItem += String.format("\nResumed after %d numbers.", mResumedProcessed);
+        }
+        if (mFinished && !isComplete()) {
+            NumberRangeSet completed = getCompleted();
+            formattedItem += String.format("\nStopped with %d of %d numbers completed in %d ranges, run the same pattern again to continue.",
+                    completed.getSize(), mPlan.getNumbersCount(), completed.getRangesCount());
+            if (completed.getRangesCount() > 0 && completed.getRangesCount() <= MAX_REPORTED_RANGES) {
+                formattedItem += "\nCompleted: " + completed + ".";
+            }
+        }
+        return formattedItem;
+    }
+
+    /**
+     * Format string with text presentation of time interval in milliseconds
+     *
+     * @param millis - time interval in milliseconds
+     * @return string with text
+     */
+    public static String formatSecondsToTime(long millis) {
+        long sec = millis / 1000;
+        long seconds = sec % 60;
+        long minutes = sec / 60;
+        if (minutes >= 60) {
+            long hours = minutes / 60;
+            minutes %= 60;
+            if( hours >= 24) {
+                long days = hours / 24;
+                return String.format("%d days %02dh:%02dm:%02ds", days,hours%24, minutes, seconds);
+            }
+            return String.format("%02dh:%02dm:%02ds", hours, minutes, seconds);
+        }
+        return String.format("%02dm:%02ds", minutes, seconds);
+    }
+}
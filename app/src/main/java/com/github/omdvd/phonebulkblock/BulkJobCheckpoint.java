@@ -0,0 +1,53 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * State of bulk job sufficient to continue it after restart: job identity, completed numbers
+ * and counters summed over completed numbers only
+ */
+public class BulkJobCheckpoint {
+
+    private final String mPlan;
+    private final int mAction;
+    private final NumberRangeSet mCompleted;
+    private final BulkActionCounters mCompletedCounters;
+
+    public BulkJobCheckpoint(@NonNull String plan, int action) {
+        this(plan, action, NumberRangeSet.EMPTY, new BulkActionCounters());
+    }
+
+    public BulkJobCheckpoint(@NonNull String plan, int action, @NonNull NumberRangeSet completed, @NonNull BulkActionCounters completedCounters) {
+        mPlan = plan;
+        mAction = action;
+        mCompleted = completed;
+        mCompletedCounters = completedCounters;
+    }
+
+    public String getPlan() {
+        return mPlan;
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public NumberRangeSet getCompleted() {
+        return mCompleted;
+    }
+
+    public BulkActionCounters getCompletedCounters() {
+        return mCompletedCounters;
+    }
+
+    /**
+     * Check that checkpoint belongs to the same job
+     *
+     * @param plan - text of job plan
+     * @param action - action with blocklist
+     * @return true if checkpoint can be used to continue job
+     */
+    public boolean isSameJob(@NonNull String plan, int action) {
+        return mPlan.equals(plan) && mAction == action;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Keep checkpoint of bulk job in file, file is replaced atomically on every save
+ */
+public class BulkJobCheckpointStore {
+
+    private static final int VERSION = 3;
+
+    private final File mFile;
+
+    public BulkJobCheckpointStore(@NonNull File file) {
+        mFile = file;
+    }
+
+    /**
+     * Write checkpoint to temporary file and rename it over previous one
+     *
+     * @param checkpoint - checkpoint
+     * @throws IOException - write failed
+     */
+    public synchronized void save(@NonNull BulkJobCheckpoint checkpoint) throws IOException {
+        BulkActionCounters counters = checkpoint.getCompletedCounters();
+        Properties properties = new Properties();
+        properties.setProperty("version", Integer.toString(VERSION));
+        properties.setProperty("plan", checkpoint.getPlan());
+        properties.setProperty("action", Integer.toString(checkpoint.getAction()));
+        properties.setProperty("completed", checkpoint.getCompleted().toString());
+        properties.setProperty("processed", Long.toString(counters.getProcessed()));
+        properties.setProperty("blocked", Long.toString(counters.getBlocked()));
+        properties.setProperty("notBlocked", Long.toString(counters.getNotBlocked()));
+        properties.setProperty("unblocked", Long.toString(counters.getUnblocked()));
+        properties.setProperty("errors", Long.toString(counters.getErrors()));
+        properties.setProperty("skipped", Long.toString(counters.getSkipped()));
+
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tmpFile)) {
+            properties.store(output, null);
+            output.getFD().sync();
+        }
+        if (!tmpFile.renameTo(mFile)) {
+            throw new IOException("Can not rename " + tmpFile + " to " + mFile);
+        }
+    }
+
+    /**
+     * Read checkpoint
+     *
+     * @return checkpoint or null if there is no checkpoint or it is unreadable
+     */
+    @Nullable
+    public synchronized BulkJobCheckpoint load() {
+        if (!mFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(mFile)) {
+            properties.load(input);
+            if (Integer.parseInt(properties.getProperty("version", "0")) != VERSION) {
+                return null;
+            }
+            BulkActionCounters counters = new BulkActionCounters();
+            counters.addProcessed(Long.parseLong(properties.getProperty("processed")));
+            counters.addBlocked(Long.parseLong(properties.getProperty("blocked")));
+            counters.addNotBlocked(Long.parseLong(properties.getProperty("notBlocked")));
+            counters.addUnblocked(Long.parseLong(properties.getProperty("unblocked")));
+            counters.addErrors(Long.parseLong(properties.getProperty("errors")));
+            counters.addSkipped(Long.parseLong(properties.getProperty("skipped", "0")));
+            return new BulkJobCheckpoint(
+                    properties.getProperty("plan"),
+                    Integer.parseInt(properties.getProperty("action")),
+                    NumberRangeSet.parse(properties.getProperty("completed")),
+                    counters);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove checkpoint
+     */
+    public synchronized void clear() {
+        mFile.delete();
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Control of bulk job shared by job, runner, workers and batch writers, safe for many threads.
+ * Pause holds workers before their next number or backend call until job is resumed or cancelled.
+ * Cancel releases paused workers, stops them before their next number or backend call and interrupts
+ * in-flight batches, so runner returns without waiting for workers. Provider call already sent
+ * can not be taken back, its numbers are not reported as completed and are written again on continue.
+ * Handle also collects ranges of completed numbers, so cancelled job can be continued instead of redone.
+ */
+public class BulkJobHandle {
+
+    public static final int STATE_RUNNING = 0;
+    public static final int STATE_PAUSED = 1;
+    public static final int STATE_CANCELLED = 2;
+
+    private final List<Runnable> mCancelListeners = new ArrayList<>();
+    private final NumberRangeSet.Builder mCompleted = new NumberRangeSet.Builder();
+    private volatile int mState = STATE_RUNNING;
+    private long mCompletedCount;
+
+    /**
+     * Hold workers before their next number or backend call
+     *
+     * @return true if job was running and is paused now
+     */
+    public synchronized boolean pause() {
+        if (mState != STATE_RUNNING) {
+            return false;
+        }
+        mState = STATE_PAUSED;
+        return true;
+    }
+
+    /**
+     * Let paused workers continue
+     *
+     * @return true if job was paused and is running now
+     */
+    public synchronized boolean resume() {
+        if (mState != STATE_PAUSED) {
+            return false;
+        }
+        mState = STATE_RUNNING;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Stop job, can not be undone
+     */
+    public void cancel() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mState == STATE_CANCELLED) {
+                return;
+            }
+            mState = STATE_CANCELLED;
+            notifyAll();
+            listeners = new ArrayList<>(mCancelListeners);
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public boolean isPaused() {
+        return mState == STATE_PAUSED;
+    }
+
+    public boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    /**
+     * Wait while job is paused, returns at once for running job
+     *
+     * @return true if worker may continue, false if job is cancelled or worker thread is interrupted
+     */
+    public boolean awaitRunning() {
+        if (mState == STATE_RUNNING) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        synchronized (this) {
+            try {
+                while (mState == STATE_PAUSED) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return mState == STATE_RUNNING;
+        }
+    }
+
+    /**
+     * @param listener - called once by thread which cancels job, at once if job is already cancelled
+     */
+    public void addCancelListener(@NonNull Runnable listener) {
+        synchronized (this) {
+            if (mState != STATE_CANCELLED) {
+                mCancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public synchronized void removeCancelListener(@NonNull Runnable listener) {
+        mCancelListeners.remove(listener);
+    }
+
+    /**
+     * @param numbers - numbers processed completely, e.g. fully written shard
+     */
+    public synchronized void addCompleted(@NonNull NumberRangeSet numbers) {
+        mCompleted.addAll(numbers);
+        mCompletedCount += numbers.getSize();
+    }
+
+    /**
+     * @param range - range of numbers processed completely
+     */
+    public void addCompleted(@NonNull NumberRange range) {
+        addCompleted(NumberRangeSet.of(range));
+    }
+
+    /**
+     * @return numbers processed completely, numbers of partially processed shards are not included
+     */
+    public synchronized NumberRangeSet getCompleted() {
+        return mCompleted.build();
+    }
+
+    /**
+     * @return count of numbers processed completely
+     */
+    public synchronized long getCompletedCount() {
+        return mCompletedCount;
+    }
+}
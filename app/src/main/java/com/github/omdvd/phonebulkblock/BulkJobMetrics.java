@@ -0,0 +1,272 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one run of bulk job: latency histograms per operation type, errors by exception class,
+ * sizes of backend calls, depth of shard queue and runtime statistics of GC and allocations.
+ * Safe to update from many worker threads, see {@link BulkJobReport} for export.
+ */
+public class BulkJobMetrics {
+
+    public static final String OP_SNAPSHOT = "snapshot";
+    public static final String OP_SHARD = "shard";
+    public static final String OP_CHECK = "check";
+    public static final String OP_BLOCK_BATCH = "block_batch";
+    public static final String OP_UNBLOCK_BATCH = "unblock_batch";
+
+    /**
+     * Source of cumulative runtime statistics, -1 for statistic not supported
+     */
+    public interface RuntimeStats {
+
+        RuntimeStats NONE = new RuntimeStats() {
+            @Override
+            public long getGcCount() {
+                return -1;
+            }
+
+            @Override
+            public long getGcTimeMillis() {
+                return -1;
+            }
+
+            @Override
+            public long getAllocatedBytes() {
+                return -1;
+            }
+        };
+
+        long getGcCount();
+
+        long getGcTimeMillis();
+
+        long getAllocatedBytes();
+    }
+
+    private final BulkJobTracer mTracer;
+    private final RuntimeStats mRuntimeStats;
+    private final Map<String, LatencyHistogram> mLatencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> mErrors = new ConcurrentHashMap<>();
+    // Histograms of values other than latencies, bucket bounds work for any non-negative values
+    private final LatencyHistogram mBatchSizes = new LatencyHistogram();
+    private final LatencyHistogram mQueueDepths = new LatencyHistogram();
+    private final AtomicInteger mQueuedShards = new AtomicInteger();
+    private final Map<String, String> mProperties = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile long mStartNanos, mFinishNanos;
+    private long mStartGcCount, mStartGcTimeMillis, mStartAllocatedBytes;
+    private long mGcCount = -1, mGcTimeMillis = -1, mAllocatedBytes = -1;
+
+    /**
+     * Metrics without trace sections and runtime statistics
+     */
+    public BulkJobMetrics() {
+        this(BulkJobTracer.NONE, RuntimeStats.NONE);
+    }
+
+    /**
+     * @param tracer - hook for trace sections of operations
+     * @param runtimeStats - source of GC and allocation statistics
+     */
+    public BulkJobMetrics(@NonNull BulkJobTracer tracer, @NonNull RuntimeStats runtimeStats) {
+        mTracer = tracer;
+        mRuntimeStats = runtimeStats;
+    }
+
+    @NonNull
+    public BulkJobTracer getTracer() {
+        return mTracer;
+    }
+
+    /**
+     * Mark start of run and read runtime statistics
+     */
+    public synchronized void start() {
+        mStartNanos = System.nanoTime();
+        mFinishNanos = 0;
+        mStartGcCount = mRuntimeStats.getGcCount();
+        mStartGcTimeMillis = mRuntimeStats.getGcTimeMillis();
+        mStartAllocatedBytes = mRuntimeStats.getAllocatedBytes();
+    }
+
+    /**
+     * Mark end of run and compute runtime statistics of run
+     */
+    public synchronized void finish() {
+        mFinishNanos = System.nanoTime();
+        mGcCount = delta(mStartGcCount, mRuntimeStats.getGcCount());
+        mGcTimeMillis = delta(mStartGcTimeMillis, mRuntimeStats.getGcTimeMillis());
+        mAllocatedBytes = delta(mStartAllocatedBytes, mRuntimeStats.getAllocatedBytes());
+    }
+
+    /**
+     * Begin trace section of operation
+     *
+     * @param operation - type of operation, e.g. OP_BLOCK_BATCH
+     * @return start time in nanoseconds for {@link #endOperation(String, long)}
+     */
+    public long beginOperation(@NonNull String operation) {
+        mTracer.beginSection(operation);
+        return System.nanoTime();
+    }
+
+    /**
+     * End trace section of operation and record its latency, must be called by thread which began operation
+     *
+     * @param operation - type of operation
+     * @param startNanos - start time returned by {@link #beginOperation(String)}
+     */
+    public void endOperation(@NonNull String operation, long startNanos) {
+        recordLatency(operation, System.nanoTime() - startNanos);
+        mTracer.endSection();
+    }
+
+    /**
+     * @param operation - type of operation
+     * @param nanos - latency in nanoseconds
+     */
+    public void recordLatency(@NonNull String operation, long nanos) {
+        getLatency(operation).record(nanos);
+    }
+
+    /**
+     * @param error - exception thrown by operation
+     */
+    public void recordError(@NonNull Throwable error) {
+        mErrors.computeIfAbsent(error.getClass().getName(), name -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param batchSize - count of numbers in one backend call
+     */
+    public void recordBatchSize(int batchSize) {
+        mBatchSizes.record(batchSize);
+    }
+
+    /**
+     * Count shard waiting for worker
+     */
+    public void onShardQueued() {
+        mQueuedShards.incrementAndGet();
+    }
+
+    /**
+     * Count shard taken by worker and record count of shards still waiting
+     */
+    public void onShardStarted() {
+        mQueueDepths.record(mQueuedShards.decrementAndGet());
+    }
+
+    /**
+     * @param operation - type of operation
+     * @return histogram of latencies in nanoseconds, empty if operation was not recorded
+     */
+    @NonNull
+    public LatencyHistogram getLatency(@NonNull String operation) {
+        return mLatencies.computeIfAbsent(operation, name -> new LatencyHistogram());
+    }
+
+    /**
+     * @return histograms of recorded operations sorted by type of operation
+     */
+    @NonNull
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : mLatencies.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                latencies.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * @return count of errors by class name of exception
+     */
+    @NonNull
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errors = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : mErrors.entrySet()) {
+            errors.put(entry.getKey(), entry.getValue().sum());
+        }
+        return errors;
+    }
+
+    /**
+     * @return histogram of count of numbers in backend calls
+     */
+    @NonNull
+    public LatencyHistogram getBatchSizes() {
+        return mBatchSizes;
+    }
+
+    /**
+     * @return histogram of count of shards waiting for worker when every shard starts
+     */
+    @NonNull
+    public LatencyHistogram getQueueDepths() {
+        return mQueueDepths;
+    }
+
+    /**
+     * Describe environment of run in report, e.g. device model
+     *
+     * @param name - name of property
+     * @param value - value of property
+     */
+    public void setProperty(@NonNull String name, @NonNull String value) {
+        mProperties.put(name, value);
+    }
+
+    @NonNull
+    public Map<String, String> getProperties() {
+        synchronized (mProperties) {
+            return new LinkedHashMap<>(mProperties);
+        }
+    }
+
+    /**
+     * @return duration of run in nanoseconds until finish or until now, 0 if run was not started
+     */
+    public long getDurationNanos() {
+        long start = mStartNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long finish = mFinishNanos;
+        return ((finish != 0) ? finish : System.nanoTime()) - start;
+    }
+
+    /**
+     * @return count of garbage collections during run, -1 if unknown
+     */
+    public synchronized long getGcCount() {
+        return mGcCount;
+    }
+
+    /**
+     * @return time of garbage collections during run in milliseconds, -1 if unknown
+     */
+    public synchronized long getGcTimeMillis() {
+        return mGcTimeMillis;
+    }
+
+    /**
+     * @return bytes allocated by process during run, -1 if unknown
+     */
+    public synchronized long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    private static long delta(long start, long finish) {
+        return (start < 0 || finish < 0) ? -1 : finish - start;
+    }
+}
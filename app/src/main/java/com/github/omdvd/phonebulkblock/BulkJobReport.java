@@ -0,0 +1,205 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Export result and metrics of bulk job as JSON or CSV report, so runs on different devices can be compared.
+ * Latencies are in nanoseconds, percentiles are upper bounds of histogram buckets.
+ */
+public final class BulkJobReport {
+
+    public static final String CSV_HEADER = "metric,name,count,mean,p50,p90,p99,max";
+
+    private BulkJobReport() {
+    }
+
+    /**
+     * @param job - finished or running job
+     * @param out - output for JSON object
+     * @throws IOException - write failed
+     */
+    public static void writeJson(@NonNull BulkJob job, @NonNull Appendable out) throws IOException {
+        BulkJobMetrics metrics = job.getMetrics();
+        BulkActionCounters counters = job.getCounters();
+        out.append("{\n");
+        out.append("  \"action\": ").append(quoteJson(BulkAction.getName(job.getAction()))).append(",\n");
+        out.append("  \"plan\": ").append(quoteJson(job.getPlan().toString())).append(",\n");
+        out.append("  \"numbers\": ").append(Long.toString(job.getNumbersCount())).append(",\n");
+        out.append("  \"resumed_after\": ").append(Long.toString(job.getResumedProcessed())).append(",\n");
+        out.append("  \"complete\": ").append(Boolean.toString(job.isComplete())).append(",\n");
+        out.append("  \"duration_ns\": ").append(Long.toString(metrics.getDurationNanos())).append(",\n");
+
+        out.append("  \"properties\": {");
+        String separator = "\n";
+        for (Map.Entry<String, String> property : metrics.getProperties().entrySet()) {
+            out.append(separator).append("    ").append(quoteJson(property.getKey())).append(": ").append(quoteJson(property.getValue()));
+            separator = ",\n";
+        }
+        out.append(separator.equals("\n") ? "},\n" : "\n  },\n");
+
+        out.append("  \"counters\": {\n");
+        out.append("    \"processed\": ").append(Long.toString(counters.getProcessed())).append(",\n");
+        out.append("    \"blocked\": ").append(Long.toString(counters.getBlocked())).append(",\n");
+        out.append("    \"not_blocked\": ").append(Long.toString(counters.getNotBlocked())).append(",\n");
+        out.append("    \"unblocked\": ").append(Long.toString(counters.getUnblocked())).append(",\n");
+        out.append("    \"skipped\": ").append(Long.toString(counters.getSkipped())).append(",\n");
+        out.append("    \"errors\": ").append(Long.toString(counters.getErrors())).append("\n");
+        out.append("  },\n");
+
+        out.append("  \"latency_ns\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> latency : metrics.getLatencies().entrySet()) {
+            out.append(separator).append("    ").append(quoteJson(latency.getKey())).append(": ");
+            appendJsonHistogram(out, latency.getValue());
+            separator = ",\n";
+        }
+        out.append(separator.equals("\n") ? "},\n" : "\n  },\n");
+
+        out.append("  \"batch_size\": ");
+        appendJsonHistogram(out, metrics.getBatchSizes());
+        out.append(",\n");
+        out.append("  \"queue_depth\": ");
+        appendJsonHistogram(out, metrics.getQueueDepths());
+        out.append(",\n");
+
+        out.append("  \"errors_by_class\": {");
+        separator = "\n";
+        for (Map.Entry<String, Long> error : metrics.getErrors().entrySet()) {
+            out.append(separator).append("    ").append(quoteJson(error.getKey())).append(": ").append(Long.toString(error.getValue()));
+            separator = ",\n";
+        }
+        out.append(separator.equals("\n") ? "},\n" : "\n  },\n");
+
+        AdaptiveBatchController controller = job.getBatchController();
+        if (controller != null) {
+            out.append("  \"batch_controller\": {\n");
+            out.append("    \"batch_size\": ").append(Integer.toString(controller.getBatchSize())).append(",\n");
+            out.append("    \"concurrency\": ").append(Integer.toString(controller.getConcurrency())).append(",\n");
+            out.append("    \"calls_slow\": ").append(Long.toString(controller.getCountSlow())).append(",\n");
+            out.append("    \"failure_rate\": ").append(String.format(Locale.US, "%.6f", controller.getFailureRate())).append("\n");
+            out.append("  },\n");
+        }
+
+        out.append("  \"runtime\": {\n");
+        out.append("    \"gc_count\": ").append(Long.toString(metrics.getGcCount())).append(",\n");
+        out.append("    \"gc_time_ms\": ").append(Long.toString(metrics.getGcTimeMillis())).append(",\n");
+        out.append("    \"allocated_bytes\": ").append(Long.toString(metrics.getAllocatedBytes())).append("\n");
+        out.append("  }\n");
+        out.append("}\n");
+    }
+
+    /**
+     * Report of scripted job rejected before run, e.g. for wrong pattern or settings
+     *
+     * @param id - id of job
+     * @param error - reason of rejection
+     * @param out - output for JSON object
+     * @throws IOException - write failed
+     */
+    public static void writeErrorJson(@NonNull String id, @NonNull String error, @NonNull Appendable out) throws IOException {
+        out.append("{\n");
+        out.append("  \"id\": ").append(quoteJson(id)).append(",\n");
+        out.append("  \"complete\": false,\n");
+        out.append("  \"error\": ").append(quoteJson(error)).append("\n");
+        out.append("}\n");
+    }
+
+    /**
+     * Write report as rows of {@link #CSV_HEADER}, single values are in column count
+     *
+     * @param job - finished or running job
+     * @param out - output for CSV rows
+     * @throws IOException - write failed
+     */
+    public static void writeCsv(@NonNull BulkJob job, @NonNull Appendable out) throws IOException {
+        BulkJobMetrics metrics = job.getMetrics();
+        BulkActionCounters counters = job.getCounters();
+        out.append(CSV_HEADER).append('\n');
+        appendCsvValue(out, "job", "action", BulkAction.getName(job.getAction()));
+        appendCsvValue(out, "job", "plan", job.getPlan().toString());
+        appendCsvValue(out, "job", "numbers", Long.toString(job.getNumbersCount()));
+        appendCsvValue(out, "job", "resumed_after", Long.toString(job.getResumedProcessed()));
+        appendCsvValue(out, "job", "complete", Boolean.toString(job.isComplete()));
+        appendCsvValue(out, "job", "duration_ns", Long.toString(metrics.getDurationNanos()));
+        for (Map.Entry<String, String> property : metrics.getProperties().entrySet()) {
+            appendCsvValue(out, "property", property.getKey(), property.getValue());
+        }
+        appendCsvValue(out, "counter", "processed", Long.toString(counters.getProcessed()));
+        appendCsvValue(out, "counter", "blocked", Long.toString(counters.getBlocked()));
+        appendCsvValue(out, "counter", "not_blocked", Long.toString(counters.getNotBlocked()));
+        appendCsvValue(out, "counter", "unblocked", Long.toString(counters.getUnblocked()));
+        appendCsvValue(out, "counter", "skipped", Long.toString(counters.getSkipped()));
+        appendCsvValue(out, "counter", "errors", Long.toString(counters.getErrors()));
+        for (Map.Entry<String, LatencyHistogram> latency : metrics.getLatencies().entrySet()) {
+            appendCsvHistogram(out, "latency_ns", latency.getKey(), latency.getValue());
+        }
+        appendCsvHistogram(out, "batch_size", "calls", metrics.getBatchSizes());
+        appendCsvHistogram(out, "queue_depth", "shards", metrics.getQueueDepths());
+        for (Map.Entry<String, Long> error : metrics.getErrors().entrySet()) {
+            appendCsvValue(out, "error", error.getKey(), Long.toString(error.getValue()));
+        }
+        appendCsvValue(out, "runtime", "gc_count", Long.toString(metrics.getGcCount()));
+        appendCsvValue(out, "runtime", "gc_time_ms", Long.toString(metrics.getGcTimeMillis()));
+        appendCsvValue(out, "runtime", "allocated_bytes", Long.toString(metrics.getAllocatedBytes()));
+    }
+
+    private static void appendJsonHistogram(Appendable out, LatencyHistogram histogram) throws IOException {
+        out.append(String.format(Locale.US, "{\"count\": %d, \"mean\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d}",
+                histogram.getCount(), histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(90),
+                histogram.getPercentile(99), histogram.getMax()));
+    }
+
+    private static void appendCsvHistogram(Appendable out, String metric, String name, LatencyHistogram histogram) throws IOException {
+        out.append(quoteCsv(metric)).append(',').append(quoteCsv(name));
+        out.append(String.format(Locale.US, ",%d,%d,%d,%d,%d,%d\n",
+                histogram.getCount(), histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(90),
+                histogram.getPercentile(99), histogram.getMax()));
+    }
+
+    private static void appendCsvValue(Appendable out, String metric, String name, String value) throws IOException {
+        out.append(quoteCsv(metric)).append(',').append(quoteCsv(name)).append(',').append(quoteCsv(value)).append(",,,,,\n");
+    }
+
+    static String quoteJson(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    static String quoteCsv(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
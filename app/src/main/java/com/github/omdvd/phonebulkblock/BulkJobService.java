@@ -0,0 +1,503 @@
+package com.github.omdvd.phonebulkblock;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Foreground service running bulk jobs independently of activity lifecycle.
+ * Start intent is redelivered after process death, job continues from its checkpoint.
+ * Jobs are queued and run back to back. Scripted jobs are started by holders of {@link #PERMISSION_RUN_JOBS}
+ * with {@link #ACTION_RUN_JOB} and settings of {@link BulkJobSpec} as string extras, e.g.
+ * "adb shell run-as com.github.omdvd.phonebulkblock am start-foreground-service
+ * -n com.github.omdvd.phonebulkblock/.BulkJobService -a com.github.omdvd.phonebulkblock.action.RUN_JOB
+ * --es id job1 --es pattern +7495123**** --es action block --es workers 2" on debuggable build.
+ * Scripted job shows no result, its JSON and CSV report "bulk_job_&lt;id&gt;" is written into app external files.
+ */
+public class BulkJobService extends Service {
+
+    public static final String TAG = "BulkJobService";
+
+    public static final String ACTION_START_JOB = "com.github.omdvd.phonebulkblock.action.START_JOB";
+    public static final String ACTION_RUN_JOB = "com.github.omdvd.phonebulkblock.action.RUN_JOB";
+    public static final String PERMISSION_RUN_JOBS = "com.github.omdvd.phonebulkblock.permission.RUN_BULK_JOBS";
+    public static final String EXTRA_PATTERN = "pattern";
+    public static final String EXTRA_ACTION = "action";
+    public static final String ACTION_EXPORT = "com.github.omdvd.phonebulkblock.action.EXPORT";
+    public static final String ACTION_IMPORT = "com.github.omdvd.phonebulkblock.action.IMPORT";
+
+    private static final String CHANNEL_ID = "bulk_jobs";
+    private static final int NOTIFICATION_ID_PROGRESS = 1;
+    private static final int NOTIFICATION_ID_RESULT = 2;
+    private static final String CHECKPOINT_FILE = "bulk_job_checkpoint.properties";
+    private static final String REPORTS_DIR = "reports";
+    private static final int MAX_REPORTS = 20;
+
+    private final IBinder mBinder = new LocalBinder();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private Handler mHandler;
+    private volatile BulkJob mJob;
+    private volatile BulkActionRunner mTransferRunner;
+    private boolean mFlagBound;
+    private int mTransfersCount;
+    private volatile int mQueuedJobsCount;
+    private String mRejectionMessage;
+
+    /**
+     * Binder for activities in the same process
+     */
+    public class LocalBinder extends Binder {
+        public BulkJobService getService() {
+            return BulkJobService.this;
+        }
+    }
+
+    /**
+     * Start bulk job in service
+     *
+     * @param context - context
+     * @param pattern - list of patterns and ranges, see {@link JobPlanner#parse(String)}
+     * @param action - action with blocklist
+     */
+    public static void startJob(@NonNull Context context, @NonNull String pattern, int action) {
+        Intent intent = new Intent(context, BulkJobService.class);
+        intent.setAction(ACTION_START_JOB);
+        intent.putExtra(EXTRA_PATTERN, pattern);
+        intent.putExtra(EXTRA_ACTION, action);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /**
+     * Export blocklist into file or import it from file in service
+     *
+     * @param context - context
+     * @param transferAction - ACTION_EXPORT or ACTION_IMPORT
+     * @param uri - document to write or read
+     */
+    public static void startTransfer(@NonNull Context context, @NonNull String transferAction, @NonNull Uri uri) {
+        Intent intent = new Intent(context, BulkJobService.class);
+        intent.setAction(transferAction);
+        intent.setData(uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mHandler = new Handler(Looper.getMainLooper());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Bulk jobs", NotificationManager.IMPORTANCE_LOW);
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public int onStartCommand(@Nullable Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_START_JOB.equals(intent.getAction())) {
+            // Started by startForegroundService, service must become foreground even if job is rejected
+            startForegroundNow();
+            mRejectionMessage = null;
+            String pattern = intent.getStringExtra(EXTRA_PATTERN);
+            try {
+                startJob(new BulkJobSpec((pattern != null) ? pattern : "", intent.getIntExtra(EXTRA_ACTION, -1)), startId);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Can not start job: " + e.getMessage());
+                onJobRejected("Can not start job: " + e.getMessage());
+                stopIfIdle();
+            }
+        } else if (intent != null && ACTION_RUN_JOB.equals(intent.getAction())) {
+            startForegroundNow();
+            try {
+                startJob(BulkJobSpec.parse(getSpecValues(intent)), startId);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Can not run job: " + e.getMessage());
+                String id = intent.getStringExtra(BulkJobSpec.KEY_ID);
+                if (id != null && BulkJobSpec.isValidId(id)) {
+                    writeErrorReport(id, e.getMessage());
+                }
+                stopIfIdle();
+            }
+        } else if (intent != null && intent.getData() != null
+                && (ACTION_EXPORT.equals(intent.getAction()) || ACTION_IMPORT.equals(intent.getAction()))) {
+            startTransfer(intent.getAction(), intent.getData());
+            // Transfer is not resumable, do not redeliver it after process death
+            return START_NOT_STICKY;
+        } else if (mTransfersCount == 0 && mQueuedJobsCount == 0 && (mJob == null || mJob.isFinished())) {
+            stopSelf(startId);
+        }
+        return START_REDELIVER_INTENT;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        mFlagBound = true;
+        return mBinder;
+    }
+
+    @Override
+    public void onRebind(Intent intent) {
+        mFlagBound = true;
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        mFlagBound = false;
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        BulkJob job = mJob;
+        if (job != null && !job.isFinished()) {
+            job.stop();
+        }
+        BulkActionRunner transferRunner = mTransferRunner;
+        if (transferRunner != null) {
+            transferRunner.stop();
+        }
+        // Queued jobs do not run in destroyed service, their intents are redelivered
+        mExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
+    /**
+     * @return current or last finished job, null if there is no job
+     */
+    @Nullable
+    public BulkJob getJob() {
+        return mJob;
+    }
+
+    /**
+     * Take reason of last job started from activity and rejected before run, reason is returned once
+     *
+     * @return reason of rejection, null if no job was rejected
+     */
+    @Nullable
+    public String takeRejectionMessage() {
+        String message = mRejectionMessage;
+        mRejectionMessage = null;
+        return message;
+    }
+
+    /**
+     * Forget finished job after its result was shown
+     *
+     * @param job - finished job
+     */
+    public void clearJob(@NonNull BulkJob job) {
+        if (mJob == job && job.isFinished()) {
+            mJob = null;
+        }
+    }
+
+    /**
+     * Plan job and queue it after running jobs and transfers
+     *
+     * @param spec - settings of job
+     * @param startId - id of start intent, intent is redelivered after process death until job finishes
+     * @throws IllegalArgumentException - unsupported pattern or too many numbers
+     */
+    private void startJob(BulkJobSpec spec, int startId) throws IllegalArgumentException {
+        NumberCanonicalizer canonicalizer = new CountrySettingsStore(getFilesDir()).load();
+        JobPlan plan = JobPlanner.plan(spec.getPattern(), canonicalizer);
+        int action = spec.getAction();
+
+        mQueuedJobsCount++;
+        BulkJob currentJob = mJob;
+        try {
+            startForeground(NOTIFICATION_ID_PROGRESS, (currentJob != null && !currentJob.isFinished())
+                    ? buildProgressNotification(currentJob.getPlan(), currentJob.getAction()) : buildProgressNotification(plan, action));
+        } catch (IllegalStateException e) {
+            // Restart from background may be not allowed to become foreground, continue while process is alive
+            Log.w(TAG, "Can not start foreground: " + e.getMessage());
+        }
+
+        mExecutor.execute(() -> {
+            BulkActionRunner runner = spec.createRunner(new ProviderBlockListBackend(this));
+            AndroidJobTracer tracer = new AndroidJobTracer();
+            BulkJobMetrics metrics = new BulkJobMetrics(tracer, tracer);
+            metrics.setProperty("device", Build.MANUFACTURER + " " + Build.MODEL);
+            metrics.setProperty("sdk", Integer.toString(Build.VERSION.SDK_INT));
+            spec.setProperties(metrics);
+            runner.setMetrics(metrics);
+            runner.setCanonicalizer(canonicalizer);
+            // Scripted job keeps own checkpoint, so redelivered queue continues every interrupted job
+            String checkpointFile = (spec.getId() != null) ? "bulk_job_checkpoint_" + spec.getId() + ".properties" : CHECKPOINT_FILE;
+            BulkJob job = new BulkJob(plan, action, runner, new BulkJobCheckpointStore(new File(getFilesDir(), checkpointFile)));
+            mJob = job;
+            ((NotificationManager) getSystemService(NOTIFICATION_SERVICE)).notify(NOTIFICATION_ID_PROGRESS, buildProgressNotification(plan, action));
+            try {
+                job.run();
+            } catch (InterruptedException e) {
+                job.stop();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Job failed", e);
+            }
+            if (action != BulkAction.CHECK) {
+                CallService.invalidateDecisions();
+            }
+            writeReport(job, spec.getId());
+            mHandler.post(() -> onJobFinished(job, spec.getId() != null, startId));
+        });
+    }
+
+    /**
+     * Become foreground before job is planned, with progress of running job or generic text
+     */
+    private void startForegroundNow() {
+        BulkJob job = mJob;
+        try {
+            startForeground(NOTIFICATION_ID_PROGRESS, (job != null && !job.isFinished())
+                    ? buildProgressNotification(job.getPlan(), job.getAction()) : buildNotification("Starting job", true));
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Can not start foreground: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param intent - intent of scripted job
+     * @return settings of job, spec is given only by string extras, extras of other types are ignored
+     */
+    private static Map<String, String> getSpecValues(Intent intent) {
+        Map<String, String> values = new HashMap<>();
+        Bundle extras = intent.getExtras();
+        if (extras != null) {
+            for (String key : extras.keySet()) {
+                String value = extras.getString(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        }
+        return values;
+    }
+
+    private void startTransfer(String transferAction, Uri uri) {
+        boolean flagExport = ACTION_EXPORT.equals(transferAction);
+        mTransfersCount++;
+        try {
+            startForeground(NOTIFICATION_ID_PROGRESS, buildNotification(flagExport ? "Exporting blocklist" : "Importing blocklist", true));
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Can not start foreground: " + e.getMessage());
+        }
+
+        BlockListBackend backend = new ProviderBlockListBackend(this);
+        mExecutor.execute(() -> {
+            String message;
+            long startMillis = System.currentTimeMillis();
+            try {
+                if (flagExport) {
+                    OutputStream output = getContentResolver().openOutputStream(uri, "wt");
+                    if (output == null) {
+                        throw new IllegalStateException("Can not open " + uri);
+                    }
+                    long count = BlockListTransfer.exportTo(backend, output, true);
+                    message = String.format("%d numbers exported.", count);
+                } else {
+                    InputStream input = getContentResolver().openInputStream(uri);
+                    if (input == null) {
+                        throw new IllegalStateException("Can not open " + uri);
+                    }
+                    BulkActionRunner runner = new BulkActionRunner(backend, 1, BlockListBatchWriter.DEFAULT_BATCH_SIZE, BulkActionRunner.DEFAULT_SHARD_SIZE);
+                    AdaptiveBatchController controller = new AdaptiveBatchController(BlockListBatchWriter.DEFAULT_BATCH_SIZE, 1);
+                    BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, BlockListBatchWriter.DEFAULT_BATCH_SIZE, runner.getCounters(), controller);
+                    mTransferRunner = runner;
+                    long count = BlockListTransfer.importFrom(input, writer, runner);
+                    message = String.format("%d numbers imported, %d added to blocklist.\n%d errors occured.", count, runner.getCounters().getBlocked(), runner.getCounters().getErrors());
+                    if (runner.isStopped()) {
+                        message += "\nStopped before end of file.";
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Transfer failed", e);
+                message = (flagExport ? "Export" : "Import") + " failed: " + e.getMessage();
+            } finally {
+                mTransferRunner = null;
+                if (!flagExport) {
+                    CallService.invalidateDecisions();
+                }
+            }
+            String result = message + "\nElapsed time: " + BulkJob.formatSecondsToTime(System.currentTimeMillis() - startMillis);
+            mHandler.post(() -> onTransferFinished(result));
+        });
+    }
+
+    /**
+     * @return directory of reports in app external files, null if it can not be created
+     */
+    @Nullable
+    private File getReportsDir() {
+        File dir = getExternalFilesDir(REPORTS_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), REPORTS_DIR);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Can not create reports directory " + dir);
+            return null;
+        }
+        return dir;
+    }
+
+    /**
+     * Write JSON report of scripted job rejected before run
+     *
+     * @param id - id of job
+     * @param error - reason of rejection
+     */
+    private void writeErrorReport(String id, String error) {
+        File dir = getReportsDir();
+        if (dir == null) {
+            return;
+        }
+        try (Writer json = new OutputStreamWriter(new FileOutputStream(new File(dir, "bulk_job_" + id + ".json")), StandardCharsets.UTF_8)) {
+            BulkJobReport.writeErrorJson(id, error, json);
+        } catch (IOException e) {
+            Log.w(TAG, "Can not write report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write JSON and CSV report of job into app external files, only last reports are kept
+     *
+     * @param job - finished job
+     * @param id - id of scripted job naming report, null to name report by start time
+     */
+    private void writeReport(BulkJob job, @Nullable String id) {
+        File dir = getReportsDir();
+        if (dir == null) {
+            return;
+        }
+        String name = "bulk_job_" + ((id != null) ? id : Long.toString(job.getStartMillis()));
+        try (Writer json = new OutputStreamWriter(new FileOutputStream(new File(dir, name + ".json")), StandardCharsets.UTF_8);
+             Writer csv = new OutputStreamWriter(new FileOutputStream(new File(dir, name + ".csv")), StandardCharsets.UTF_8)) {
+            BulkJobReport.writeJson(job, json);
+            BulkJobReport.writeCsv(job, csv);
+            Log.i(TAG, "Report written: " + new File(dir, name + ".json"));
+        } catch (IOException e) {
+            Log.w(TAG, "Can not write report: " + e.getMessage());
+        }
+
+        File[] reports = dir.listFiles((parent, fileName) -> fileName.startsWith("bulk_job_") && fileName.endsWith(".json"));
+        if (reports != null && reports.length > MAX_REPORTS) {
+            // Names of scripted jobs are ids, order reports by time of writing
+            long[] modified = new long[reports.length];
+            for (int i = 0; i < reports.length; i++) {
+                modified[i] = reports[i].lastModified();
+            }
+            Arrays.sort(modified);
+            long oldestKept = modified[reports.length - MAX_REPORTS];
+            for (File report : reports) {
+                if (report.lastModified() < oldestKept) {
+                    String reportName = report.getName().substring(0, report.getName().length() - ".json".length());
+                    report.delete();
+                    new File(dir, reportName + ".csv").delete();
+                }
+            }
+        }
+    }
+
+    private void onTransferFinished(String message) {
+        mTransfersCount--;
+        NotificationManager notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        notificationManager.notify(NOTIFICATION_ID_RESULT, buildNotification(message, false));
+        stopIfIdle();
+    }
+
+    /**
+     * Stop service when neither job nor transfer is running
+     */
+    private void stopIfIdle() {
+        BulkJob job = mJob;
+        if (mTransfersCount == 0 && mQueuedJobsCount == 0 && (job == null || job.isFinished())) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            stopSelf();
+        }
+    }
+
+    /**
+     * Keep reason of rejection for bound activity, show it as notification if nobody is bound
+     *
+     * @param message - reason of rejection
+     */
+    private void onJobRejected(String message) {
+        if (mFlagBound) {
+            mRejectionMessage = message;
+        } else {
+            NotificationManager notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+            notificationManager.notify(NOTIFICATION_ID_RESULT, buildNotification(message, false));
+        }
+    }
+
+    private void onJobFinished(BulkJob job, boolean flagScripted, int startId) {
+        mQueuedJobsCount--;
+        if (!mFlagBound) {
+            if (!flagScripted) {
+                // Nobody shows result dialog, show result as notification
+                NotificationManager notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+                notificationManager.notify(NOTIFICATION_ID_RESULT, buildNotification(job.getResultMessage(), false));
+            }
+            clearJob(job);
+        }
+        // Finished job is not redelivered after process death, jobs finish in order of their start ids
+        stopSelfResult(startId);
+        stopIfIdle();
+    }
+
+    private Notification buildProgressNotification(JobPlan plan, int action) {
+        String text = "Running " + BulkAction.getName(action) + " " + plan;
+        if (mQueuedJobsCount > 1) {
+            text += String.format(" (%d jobs queued)", mQueuedJobsCount - 1);
+        }
+        return buildNotification(text, true);
+    }
+
+    private Notification buildNotification(String text, boolean ongoing) {
+        Intent intent = new Intent(this, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text))
+                .setContentIntent(pendingIntent)
+                .setOngoing(ongoing)
+                .setAutoCancel(!ongoing)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of one scripted bulk job: patterns, action, worker and batch settings and id naming its report.
+ * Spec is read from string values, e.g. intent extras given by "adb shell am start-foreground-service --es".
+ * Missing settings take defaults of interactive jobs.
+ */
+public class BulkJobSpec {
+
+    public static final String KEY_ID = "id";
+    public static final String KEY_PATTERN = "pattern";
+    public static final String KEY_ACTION = "action";
+    public static final String KEY_WORKERS = "workers";
+    public static final String KEY_BATCH_SIZE = "batch_size";
+    public static final String KEY_SHARD_SIZE = "shard_size";
+    public static final String KEY_ADAPTIVE = "adaptive";
+    public static final String KEY_SNAPSHOT = "snapshot";
+
+    public static final int MAX_WORKERS_COUNT = 16;
+    public static final int MAX_ID_LENGTH = 64;
+
+    private final String mId;
+    private final String mPattern;
+    private final int mAction;
+    private final int mWorkersCount;
+    private final int mBatchSize;
+    private final long mShardSize;
+    private final boolean mAdaptive;
+    private final boolean mUseSnapshot;
+
+    /**
+     * Spec of interactive job with default settings
+     *
+     * @param pattern - list of patterns and ranges, see {@link JobPlanner#parse(String)}
+     * @param action - action with blocklist
+     * @throws IllegalArgumentException - unknown action
+     */
+    public BulkJobSpec(@NonNull String pattern, int action) throws IllegalArgumentException {
+        this(null, pattern, action, BulkActionRunner.DEFAULT_WORKERS_COUNT, BlockListBatchWriter.DEFAULT_BATCH_SIZE, BulkActionRunner.DEFAULT_SHARD_SIZE, true, true);
+    }
+
+    /**
+     * @param id - id of job naming its report, null for interactive job
+     * @param pattern - list of patterns and ranges, see {@link JobPlanner#parse(String)}
+     * @param action - action with blocklist
+     * @param workersCount - count of worker threads
+     * @param batchSize - max count of numbers in one backend call, initial one for adaptive batches
+     * @param shardSize - count of numbers processed by worker at once
+     * @param adaptive - true to adapt batch size and concurrency to backend latency
+     * @param useSnapshot - true to read blocklist once and write only numbers not in desired state yet
+     * @throws IllegalArgumentException - unsupported id, action or settings
+     */
+    public BulkJobSpec(@Nullable String id, @NonNull String pattern, int action, int workersCount, int batchSize, long shardSize, boolean adaptive, boolean useSnapshot) throws IllegalArgumentException {
+        if (id != null && !isValidId(id)) {
+            throw new IllegalArgumentException("Unsupported job id: " + id);
+        }
+        if (pattern.trim().isEmpty()) {
+            throw new IllegalArgumentException("Argument pattern is empty");
+        }
+        BulkAction.getName(action);
+        if (workersCount < 1 || workersCount > MAX_WORKERS_COUNT) {
+            throw new IllegalArgumentException("Workers count must be from 1 to " + MAX_WORKERS_COUNT + ": " + workersCount);
+        }
+        if (batchSize < 1 || batchSize > AdaptiveBatchController.DEFAULT_MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be from 1 to " + AdaptiveBatchController.DEFAULT_MAX_BATCH_SIZE + ": " + batchSize);
+        }
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("Shard size must be positive: " + shardSize);
+        }
+        mId = id;
+        mPattern = pattern;
+        mAction = action;
+        mWorkersCount = workersCount;
+        mBatchSize = batchSize;
+        mShardSize = shardSize;
+        mAdaptive = adaptive;
+        mUseSnapshot = useSnapshot;
+    }
+
+    /**
+     * Read spec from string values, keys are KEY_* constants
+     *
+     * @param values - settings of job, pattern and action are required
+     * @return spec
+     * @throws IllegalArgumentException - missing or unsupported setting
+     */
+    public static BulkJobSpec parse(@NonNull Map<String, String> values) throws IllegalArgumentException {
+        String pattern = values.get(KEY_PATTERN);
+        if (pattern == null) {
+            throw new IllegalArgumentException("Missing " + KEY_PATTERN);
+        }
+        return new BulkJobSpec(values.get(KEY_ID), pattern, BulkAction.parse(values.get(KEY_ACTION)),
+                parseInt(values, KEY_WORKERS, BulkActionRunner.DEFAULT_WORKERS_COUNT),
+                parseInt(values, KEY_BATCH_SIZE, BlockListBatchWriter.DEFAULT_BATCH_SIZE),
+                parseNumber(values, KEY_SHARD_SIZE, BulkActionRunner.DEFAULT_SHARD_SIZE),
+                parseFlag(values, KEY_ADAPTIVE, true),
+                parseFlag(values, KEY_SNAPSHOT, true));
+    }
+
+    /**
+     * @param id - id of job
+     * @return true if id has only latin letters, digits, '_', '.' and '-', so it is safe in file name
+     */
+    public static boolean isValidId(@NonNull String id) {
+        return id.matches("[A-Za-z0-9_.-]{1," + MAX_ID_LENGTH + "}") && !id.startsWith(".");
+    }
+
+    /**
+     * Runner configured by spec
+     *
+     * @param backend - blocklist backend
+     * @return runner
+     */
+    @NonNull
+    public BulkActionRunner createRunner(@NonNull BlockListBackend backend) {
+        BulkActionRunner runner = new BulkActionRunner(backend, mWorkersCount, mBatchSize, mShardSize);
+        if (mAdaptive) {
+            runner.setBatchController(new AdaptiveBatchController(mBatchSize, mWorkersCount));
+        }
+        runner.setUseSnapshot(mUseSnapshot);
+        return runner;
+    }
+
+    /**
+     * Write settings into report properties of job
+     *
+     * @param metrics - metrics of job
+     */
+    public void setProperties(@NonNull BulkJobMetrics metrics) {
+        if (mId != null) {
+            metrics.setProperty(KEY_ID, mId);
+        }
+        metrics.setProperty(KEY_WORKERS, Integer.toString(mWorkersCount));
+        metrics.setProperty(KEY_BATCH_SIZE, Integer.toString(mBatchSize));
+        metrics.setProperty(KEY_SHARD_SIZE, Long.toString(mShardSize));
+        metrics.setProperty(KEY_ADAPTIVE, Boolean.toString(mAdaptive));
+        metrics.setProperty(KEY_SNAPSHOT, Boolean.toString(mUseSnapshot));
+    }
+
+    /**
+     * @return id of scripted job, null for interactive job
+     */
+    @Nullable
+    public String getId() {
+        return mId;
+    }
+
+    public String getPattern() {
+        return mPattern;
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public int getWorkersCount() {
+        return mWorkersCount;
+    }
+
+    public int getBatchSize() {
+        return mBatchSize;
+    }
+
+    public long getShardSize() {
+        return mShardSize;
+    }
+
+    public boolean isAdaptive() {
+        return mAdaptive;
+    }
+
+    public boolean isUseSnapshot() {
+        return mUseSnapshot;
+    }
+
+    private static long parseNumber(Map<String, String> values, String key, long defaultValue) throws IllegalArgumentException {
+        String value = values.get(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong " + key + ": " + value);
+        }
+    }
+
+    private static int parseInt(Map<String, String> values, String key, int defaultValue) throws IllegalArgumentException {
+        long value = parseNumber(values, key, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Wrong " + key + ": " + value);
+        }
+        return (int) value;
+    }
+
+    private static boolean parseFlag(Map<String, String> values, String key, boolean defaultValue) throws IllegalArgumentException {
+        String value = values.get(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true": case "1": case "yes": return true;
+            case "false": case "0": case "no": return false;
+            default: throw new IllegalArgumentException("Wrong " + key + ": " + value);
+        }
+    }
+}
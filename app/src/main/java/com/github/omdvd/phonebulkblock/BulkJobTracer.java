@@ -0,0 +1,30 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Hook for trace sections of bulk jobs, e.g. to see them in systrace or Perfetto.
+ * Section is begun and ended on the same thread, sections of one thread are nested.
+ */
+public interface BulkJobTracer {
+
+    BulkJobTracer NONE = new BulkJobTracer() {
+        @Override
+        public void beginSection(@NonNull String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+    };
+
+    /**
+     * @param name - name of section
+     */
+    void beginSection(@NonNull String name);
+
+    /**
+     * End last section begun by current thread
+     */
+    void endSection();
+}
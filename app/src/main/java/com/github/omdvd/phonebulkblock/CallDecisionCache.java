@@ -0,0 +1,180 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Screening decisions of recent incoming numbers, so repeated calls skip normalization and index lookup.
+ * Lookups do not lock: decisions are immutable and kept in concurrent map.
+ * Decision expires after time to live. Invalidation only increments generation, decisions of older
+ * generation are ignored and replaced, so bulk job changing blocklist invalidates all of them at once.
+ * When cache is full expired and outdated decisions are evicted first, then arbitrary ones.
+ */
+public class CallDecisionCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Result of screening of one number
+     */
+    public static class Decision {
+        private final boolean mReject;
+        private final String mCanonicalNumber;
+        private final long mExpiresNanos;
+        private final long mGeneration;
+
+        Decision(boolean reject, @NonNull String canonicalNumber, long expiresNanos, long generation) {
+            mReject = reject;
+            mCanonicalNumber = canonicalNumber;
+            mExpiresNanos = expiresNanos;
+            mGeneration = generation;
+        }
+
+        public boolean isReject() {
+            return mReject;
+        }
+
+        /**
+         * @return number in E.164 form, number itself without country settings
+         */
+        @NonNull
+        public String getCanonicalNumber() {
+            return mCanonicalNumber;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Decision> mDecisions = new ConcurrentHashMap<>();
+    private final AtomicLong mGeneration = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final int mMaxSize;
+    private final long mTtlNanos;
+
+    /**
+     * @param maxSize - max count of cached decisions
+     * @param ttlMillis - time to live of decision in milliseconds
+     * @throws IllegalArgumentException - max size or time to live is not positive
+     */
+    public CallDecisionCache(int maxSize, long ttlMillis) throws IllegalArgumentException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        if (ttlMillis < 1) {
+            throw new IllegalArgumentException("Time to live must be positive: " + ttlMillis);
+        }
+        mMaxSize = maxSize;
+        mTtlNanos = ttlMillis * 1000000;
+    }
+
+    /**
+     * @param number - incoming number as received
+     * @return valid decision or null if number has to be screened
+     */
+    @Nullable
+    public Decision get(@NonNull String number) {
+        return get(number, System.nanoTime());
+    }
+
+    /**
+     * @param number - incoming number as received
+     * @param nowNanos - current time by {@link System#nanoTime()}
+     * @return valid decision or null if number has to be screened
+     */
+    @Nullable
+    public Decision get(@NonNull String number, long nowNanos) {
+        Decision decision = mDecisions.get(number);
+        if (decision == null || !isValid(decision, nowNanos)) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        mHits.incrementAndGet();
+        return decision;
+    }
+
+    /**
+     * Remember decision of current generation
+     *
+     * @param number - incoming number as received
+     * @param reject - true if call is rejected
+     * @param canonicalNumber - number in E.164 form
+     * @return stored decision
+     */
+    @NonNull
+    public Decision put(@NonNull String number, boolean reject, @NonNull String canonicalNumber) {
+        return put(number, reject, canonicalNumber, mGeneration.get(), System.nanoTime());
+    }
+
+    /**
+     * Remember decision made by screening started at given generation,
+     * decision is outdated at once if cache was invalidated during screening
+     *
+     * @param number - incoming number as received
+     * @param reject - true if call is rejected
+     * @param canonicalNumber - number in E.164 form
+     * @param generation - generation taken by {@link #getGeneration()} before screening
+     * @param nowNanos - current time by {@link System#nanoTime()}
+     * @return stored decision
+     */
+    @NonNull
+    public Decision put(@NonNull String number, boolean reject, @NonNull String canonicalNumber, long generation, long nowNanos) {
+        Decision decision = new Decision(reject, canonicalNumber, nowNanos + mTtlNanos, generation);
+        if (mDecisions.put(number, decision) == null && mDecisions.size() > mMaxSize) {
+            evict(nowNanos);
+        }
+        return decision;
+    }
+
+    /**
+     * Forget all decisions, e.g. after blocklist, screening patterns or country settings changed
+     */
+    public void invalidate() {
+        mGeneration.incrementAndGet();
+    }
+
+    public long getGeneration() {
+        return mGeneration.get();
+    }
+
+    public int size() {
+        return mDecisions.size();
+    }
+
+    public long getHits() {
+        return mHits.get();
+    }
+
+    public long getMisses() {
+        return mMisses.get();
+    }
+
+    private boolean isValid(Decision decision, long nowNanos) {
+        return decision.mGeneration == mGeneration.get() && decision.mExpiresNanos - nowNanos > 0;
+    }
+
+    /**
+     * Evict invalid decisions, then arbitrary ones down to 3/4 of max size.
+     * Concurrent callers may evict at once, cache only becomes smaller than needed.
+     *
+     * @param nowNanos - current time by {@link System#nanoTime()}
+     */
+    private void evict(long nowNanos) {
+        Iterator<Map.Entry<String, Decision>> iterator = mDecisions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (!isValid(iterator.next().getValue(), nowNanos)) {
+                iterator.remove();
+            }
+        }
+        int target = mMaxSize - mMaxSize / 4;
+        iterator = mDecisions.entrySet().iterator();
+        while (mDecisions.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
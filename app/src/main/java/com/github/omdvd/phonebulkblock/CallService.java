@@ -1,13 +1,196 @@
 package com.github.omdvd.phonebulkblock;
 
+import android.net.Uri;
+import android.os.Build;
 import android.telecom.Call;
 import android.telecom.CallScreeningService;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reject incoming calls from numbers matching stored screening patterns.
+ * Compiled index of patterns is mapped into memory once and mapped again only after {@link #reloadScreening()},
+ * so screening path checks staleness by one volatile read instead of file stat. With country settings incoming number is normalized to E.164 form through bounded cache,
+ * so number matches pattern written in any national or international form.
+ * Decisions of recent numbers are cached, so spam wave of repeated calls skips screening; cache is
+ * invalidated when blocklist, patterns or country settings change. Calls which were not rejected
+ * are counted per number to suggest patterns to block, counts are loaded and saved on background thread
+ * after response, as process is often killed between calls.
+ */
 public class CallService extends CallScreeningService {
+
+    public static final String TAG = "CallService";
+
+    private static final NumberMatcher EMPTY_INDEX = PatternIndex.build(new ArrayList<>());
+
+    private static volatile NumberMatcher sIndex = EMPTY_INDEX;
+    private static volatile CanonicalNumberCache sCanonicalCache;
+    // Patterns and country settings are changed only by this process, new process loads them on first call
+    private static final AtomicLong sScreeningGeneration = new AtomicLong();
+    private static volatile long sLoadedGeneration = -1;
+    private static final CallDecisionCache sDecisions = new CallDecisionCache(CallDecisionCache.DEFAULT_MAX_SIZE, CallDecisionCache.DEFAULT_TTL_MILLIS);
+    private static final HotNumberTracker sHotNumbers = new HotNumberTracker(HotNumberTracker.DEFAULT_MAX_NUMBERS);
+    private static final ExecutorService sHotNumbersExecutor = Executors.newSingleThreadExecutor();
+    private static boolean sHotNumbersLoaded;
+
+    private ScreeningPatternStore mStore;
+    private CountrySettingsStore mSettingsStore;
+    private HotNumberStore mHotNumberStore;
+    private CallResponse mResponseAllow, mResponseReject;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mStore = new ScreeningPatternStore(getFilesDir());
+        mSettingsStore = new CountrySettingsStore(getFilesDir());
+        mHotNumberStore = new HotNumberStore(getFilesDir());
+        mResponseAllow = new CallResponse.Builder().build();
+        mResponseReject = new CallResponse.Builder()
+                .setDisallowCall(true)
+                .setRejectCall(true)
+                .setSkipNotification(true)
+                .build();
+        loadScreening();
+    }
+
     @Override
     public void onScreenCall(@NonNull Call.Details details) {
-        respondToCall(details, new CallResponse.Builder().build());
+        CallDecisionCache.Decision decision = getDecision(details);
+        boolean reject = decision != null && decision.isReject();
+        respondToCall(details, reject ? mResponseReject : mResponseAllow);
+        if (decision != null && !reject) {
+            recordCall(decision.getCanonicalNumber());
+        }
+    }
+
+    /**
+     * @param details - details of call
+     * @return decision or null if call is not incoming or has no number
+     */
+    private CallDecisionCache.Decision getDecision(Call.Details details) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && details.getCallDirection() != Call.Details.DIRECTION_INCOMING) {
+            return null;
+        }
+        Uri handle = details.getHandle();
+        if (handle == null) {
+            return null;
+        }
+        String number = handle.getSchemeSpecificPart();
+        if (number == null) {
+            return null;
+        }
+        CallDecisionCache.Decision decision = sDecisions.get(number);
+        return (decision != null) ? decision : screen(number);
+    }
+
+    /**
+     * Count call on background thread and save counts, so they survive process death
+     *
+     * @param number - number in E.164 form
+     */
+    private void recordCall(String number) {
+        HotNumberStore store = mHotNumberStore;
+        sHotNumbersExecutor.execute(() -> {
+            loadHotNumbers(store);
+            sHotNumbers.record(number);
+            try {
+                store.save(sHotNumbers);
+            } catch (IOException e) {
+                Log.e(TAG, "Can not save counts of calls", e);
+            }
+        });
+    }
+
+    /**
+     * Match number against index of patterns and cache decision
+     *
+     * @param number - incoming number
+     * @return decision
+     */
+    private CallDecisionCache.Decision screen(String number) {
+        loadScreening();
+        // Generation is taken before lookup, so change during lookup invalidates this decision too
+        long generation = sDecisions.getGeneration();
+        NumberMatcher index = sIndex;
+        CanonicalNumberCache cache = sCanonicalCache;
+        String canonical = (cache != null) ? cache.canonicalize(number) : number;
+        boolean reject = (!canonical.equals(number) && index.matches(canonical)) || index.matches(number);
+        return sDecisions.put(number, reject, canonical, generation, System.nanoTime());
+    }
+
+    /**
+     * Forget cached decisions, call after blocklist changed
+     */
+    public static void invalidateDecisions() {
+        sDecisions.invalidate();
+    }
+
+    /**
+     * Get counter of calls which were not rejected, counts saved by previous processes are loaded on first call
+     *
+     * @param directory - directory of app files
+     * @return counter of calls
+     */
+    public static HotNumberTracker getHotNumbers(@NonNull File directory) {
+        loadHotNumbers(new HotNumberStore(directory));
+        return sHotNumbers;
+    }
+
+    private static void loadHotNumbers(HotNumberStore store) {
+        // Own lock, screening path never waits for reading of counts
+        synchronized (sHotNumbers) {
+            if (sHotNumbersLoaded) {
+                return;
+            }
+            try {
+                store.load(sHotNumbers);
+            } catch (IOException e) {
+                Log.e(TAG, "Can not load counts of calls", e);
+            }
+            sHotNumbersLoaded = true;
+        }
+    }
+
+    /**
+     * Map index and load country settings again on next call, call after screening patterns or country settings changed
+     */
+    public static void reloadScreening() {
+        sScreeningGeneration.incrementAndGet();
+        sDecisions.invalidate();
+    }
+
+    /**
+     * Map index of screening patterns and create cache of canonical numbers, if they were changed since last load
+     */
+    private void loadScreening() {
+        if (sLoadedGeneration == sScreeningGeneration.get()) {
+            return;
+        }
+        synchronized (CallService.class) {
+            long generation = sScreeningGeneration.get();
+            if (sLoadedGeneration == generation) {
+                return;
+            }
+            NumberCanonicalizer canonicalizer = mSettingsStore.load();
+            sCanonicalCache = (canonicalizer != null) ? new CanonicalNumberCache(canonicalizer, CanonicalNumberCache.DEFAULT_MAX_SIZE) : null;
+            try {
+                sIndex = mStore.openIndex();
+            } catch (IOException e) {
+                Log.e(TAG, "Can not load screening patterns", e);
+                sIndex = EMPTY_INDEX;
+            }
+            // Change during load bumps generation again, so it is loaded on next call
+            sLoadedGeneration = generation;
+            sDecisions.invalidate();
+        }
     }
 }
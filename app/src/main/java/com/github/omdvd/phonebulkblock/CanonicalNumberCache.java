@@ -0,0 +1,71 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of canonical forms of numbers, least recently used number is evicted first.
+ * Repeated calls from the same numbers are normalized once, safe for many threads.
+ */
+public class CanonicalNumberCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final NumberCanonicalizer mCanonicalizer;
+    private final Map<String, String> mCache;
+    private long mHits, mMisses;
+
+    /**
+     * @param canonicalizer - canonicalizer of numbers
+     * @param maxSize - max count of cached numbers
+     * @throws IllegalArgumentException - max size is not positive
+     */
+    public CanonicalNumberCache(@NonNull NumberCanonicalizer canonicalizer, int maxSize) throws IllegalArgumentException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        mCanonicalizer = canonicalizer;
+        mCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param number - phone number
+     * @return number in E.164 form, see {@link NumberCanonicalizer#canonicalize(CharSequence)}
+     */
+    @NonNull
+    public synchronized String canonicalize(@NonNull String number) {
+        String canonical = mCache.get(number);
+        if (canonical != null) {
+            mHits++;
+            return canonical;
+        }
+        mMisses++;
+        canonical = mCanonicalizer.canonicalize(number);
+        mCache.put(number, canonical);
+        return canonical;
+    }
+
+    @NonNull
+    public NumberCanonicalizer getCanonicalizer() {
+        return mCanonicalizer;
+    }
+
+    public synchronized int size() {
+        return mCache.size();
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+}
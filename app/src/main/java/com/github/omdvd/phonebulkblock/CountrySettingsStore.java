@@ -0,0 +1,77 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Country settings of {@link NumberCanonicalizer}, kept as text file with one line "country code,trunk prefix,length".
+ * Shared by bulk jobs, screening patterns and CallService, which reloads them when file changes.
+ */
+public class CountrySettingsStore {
+
+    public static final String FILE_NAME = "country_settings.txt";
+
+    private final File mFile;
+
+    /**
+     * @param directory - directory of settings file
+     */
+    public CountrySettingsStore(@NonNull File directory) {
+        mFile = new File(directory, FILE_NAME);
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Read stored settings
+     *
+     * @return canonicalizer, null if settings are not stored or broken
+     */
+    @Nullable
+    public synchronized NumberCanonicalizer load() {
+        if (!mFile.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            return (line != null) ? NumberCanonicalizer.parse(line) : null;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store settings
+     *
+     * @param canonicalizer - canonicalizer, null to remove settings
+     * @throws IOException - write failed
+     */
+    public synchronized void save(@Nullable NumberCanonicalizer canonicalizer) throws IOException {
+        if (canonicalizer == null) {
+            if (mFile.exists() && !mFile.delete()) {
+                throw new IOException("Can not delete " + mFile);
+            }
+            return;
+        }
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write(canonicalizer.toString());
+            writer.write('\n');
+        }
+        if (!tmpFile.renameTo(mFile)) {
+            throw new IOException("Can not rename " + tmpFile + " to " + mFile);
+        }
+    }
+}
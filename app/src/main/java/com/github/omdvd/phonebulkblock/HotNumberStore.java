@@ -0,0 +1,87 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Counts of calls per number of {@link HotNumberTracker}, kept as text file with one line "number,calls".
+ * Process of CallService is often killed between calls, so counts are saved after calls and loaded on next start.
+ */
+public class HotNumberStore {
+
+    public static final String FILE_NAME = "hot_numbers.txt";
+    public static final String SEPARATOR = ",";
+
+    private final File mFile;
+
+    /**
+     * @param directory - directory of counts file
+     */
+    public HotNumberStore(@NonNull File directory) {
+        mFile = new File(directory, FILE_NAME);
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Add stored counts to tracker, broken lines are skipped
+     *
+     * @param tracker - tracker of calls
+     * @throws IOException - read failed
+     */
+    public synchronized void load(@NonNull HotNumberTracker tracker) throws IOException {
+        if (!mFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(SEPARATOR);
+                if (separator < 1) {
+                    continue;
+                }
+                try {
+                    long calls = Long.parseLong(line.substring(separator + 1).trim());
+                    if (calls > 0) {
+                        tracker.add(line.substring(0, separator).trim(), calls);
+                    }
+                } catch (NumberFormatException e) {
+                    // Skip broken line
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace stored counts with counts of tracker
+     *
+     * @param tracker - tracker of calls
+     * @throws IOException - write failed
+     */
+    public synchronized void save(@NonNull HotNumberTracker tracker) throws IOException {
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : tracker.getCounts().entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(SEPARATOR);
+                writer.write(Long.toString(entry.getValue()));
+                writer.write('\n');
+            }
+        }
+        if (!tmpFile.renameTo(mFile)) {
+            throw new IOException("Can not rename " + tmpFile + " to " + mFile);
+        }
+    }
+}
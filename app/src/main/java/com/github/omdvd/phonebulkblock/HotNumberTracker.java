@@ -0,0 +1,208 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count of calls per number, safe for many threads without locks.
+ * Spam waves call from many numbers sharing prefix, so prefixes of the most calling numbers are
+ * suggested as patterns to block. Count of tracked numbers is bounded: when tracker is full numbers
+ * called once are forgotten, if all numbers called more than once new number is not tracked.
+ */
+public class HotNumberTracker {
+
+    public static final int DEFAULT_MAX_NUMBERS = 4096;
+
+    /**
+     * Pattern covering several numbers which called
+     */
+    public static class Suggestion {
+        private final String mPattern;
+        private final long mCalls;
+        private final int mNumbers;
+
+        Suggestion(@NonNull String pattern, long calls, int numbers) {
+            mPattern = pattern;
+            mCalls = calls;
+            mNumbers = numbers;
+        }
+
+        /**
+         * @return pattern with placeholders, see {@link PatternExpander}
+         */
+        @NonNull
+        public String getPattern() {
+            return mPattern;
+        }
+
+        /**
+         * @return count of calls from numbers of pattern
+         */
+        public long getCalls() {
+            return mCalls;
+        }
+
+        /**
+         * @return count of different numbers of pattern which called
+         */
+        public int getNumbers() {
+            return mNumbers;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("%s: %d calls from %d numbers", mPattern, mCalls, mNumbers);
+        }
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> mCalls = new ConcurrentHashMap<>();
+    private final int mMaxNumbers;
+
+    /**
+     * @param maxNumbers - max count of tracked numbers
+     * @throws IllegalArgumentException - max count is not positive
+     */
+    public HotNumberTracker(int maxNumbers) throws IllegalArgumentException {
+        if (maxNumbers < 1) {
+            throw new IllegalArgumentException("Count of numbers must be positive: " + maxNumbers);
+        }
+        mMaxNumbers = maxNumbers;
+    }
+
+    /**
+     * Count call from number
+     *
+     * @param number - number in E.164 form, numbers of other forms are counted but not suggested
+     * @return count of calls from number, 0 if number is not tracked as tracker is full
+     */
+    public long record(@NonNull String number) {
+        return add(number, 1);
+    }
+
+    /**
+     * Add calls from number, e.g. counted before and loaded from {@link HotNumberStore}
+     *
+     * @param number - number in E.164 form
+     * @param calls - count of calls, positive
+     * @return count of calls from number, 0 if number is not tracked as tracker is full
+     */
+    public long add(@NonNull String number, long calls) {
+        AtomicLong count = mCalls.get(number);
+        if (count == null) {
+            if (mCalls.size() >= mMaxNumbers && !prune()) {
+                return 0;
+            }
+            count = mCalls.computeIfAbsent(number, key -> new AtomicLong());
+        }
+        return count.addAndGet(calls);
+    }
+
+    /**
+     * @param number - number
+     * @return count of calls from number
+     */
+    public long getCalls(@NonNull String number) {
+        AtomicLong calls = mCalls.get(number);
+        return (calls != null) ? calls.get() : 0;
+    }
+
+    public int size() {
+        return mCalls.size();
+    }
+
+    /**
+     * @return copy of counts of calls per number
+     */
+    @NonNull
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : mCalls.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public void clear() {
+        mCalls.clear();
+    }
+
+    /**
+     * Group numbers by prefix and suggest prefixes with the most calls
+     *
+     * @param placeholders - count of right-side digits replaced by placeholders
+     * @param minNumbers - min count of different numbers sharing prefix
+     * @param limit - max count of suggestions
+     * @return suggestions in descending order of calls
+     * @throws IllegalArgumentException - unsupported count of placeholders
+     */
+    @NonNull
+    public List<Suggestion> suggestPatterns(int placeholders, int minNumbers, int limit) throws IllegalArgumentException {
+        if (placeholders < 1 || placeholders > PatternExpander.MAX_PLACEHOLDERS) {
+            throw new IllegalArgumentException("Unsupported count of placeholders: " + placeholders);
+        }
+        Map<String, long[]> prefixes = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : mCalls.entrySet()) {
+            String number = entry.getKey();
+            int digitsStart = number.startsWith("+") ? 1 : 0;
+            if (number.length() - digitsStart <= placeholders || !isDigits(number, digitsStart)) {
+                continue;
+            }
+            long[] counts = prefixes.get(number.substring(0, number.length() - placeholders));
+            if (counts == null) {
+                counts = new long[2];
+                prefixes.put(number.substring(0, number.length() - placeholders), counts);
+            }
+            counts[0] += entry.getValue().get();
+            counts[1]++;
+        }
+
+        StringBuilder tail = new StringBuilder();
+        for (int i = 0; i < placeholders; i++) {
+            tail.append(PatternExpander.DEFAULT_PLACEHOLDER);
+        }
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : prefixes.entrySet()) {
+            if (entry.getValue()[1] >= minNumbers) {
+                suggestions.add(new Suggestion(entry.getKey() + tail, entry.getValue()[0], (int) entry.getValue()[1]));
+            }
+        }
+        Collections.sort(suggestions, (a, b) -> (a.mCalls != b.mCalls) ? Long.compare(b.mCalls, a.mCalls) : a.mPattern.compareTo(b.mPattern));
+        return (suggestions.size() > limit) ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+    }
+
+    /**
+     * Forget numbers called once
+     *
+     * @return true if some number was forgotten
+     */
+    private boolean prune() {
+        boolean pruned = false;
+        Iterator<AtomicLong> iterator = mCalls.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() <= 1) {
+                iterator.remove();
+                pruned = true;
+            }
+        }
+        return pruned;
+    }
+
+    private static boolean isDigits(String number, int start) {
+        for (int i = start; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.omdvd.phonebulkblock;
+
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.telecom.Call;
+import android.telecom.VideoProfile;
+import android.view.Gravity;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Minimal in-call screen: number and state of current call, answer and hang up buttons.
+ * Shown over lock screen, closed when there are no calls left.
+ */
+public class InCallActivity extends AppCompatActivity
+    implements
+        View.OnClickListener
+{
+
+    private TextView mTextNumber, mTextState;
+    private Button mButtonAnswer, mButtonHangUp;
+
+    private final Runnable mCallsListener = this::updateCall;
+
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            setShowWhenLocked(true);
+            setTurnScreenOn(true);
+        } else {
+            getWindow().addFlags(WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED | WindowManager.LayoutParams.FLAG_TURN_SCREEN_ON);
+        }
+
+        // Views are created in code, screen has only four views
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setGravity(Gravity.CENTER);
+        mTextNumber = new TextView(this);
+        mTextNumber.setTextSize(28);
+        mTextNumber.setGravity(Gravity.CENTER);
+        mTextState = new TextView(this);
+        mTextState.setGravity(Gravity.CENTER);
+        mButtonAnswer = new Button(this);
+        mButtonAnswer.setText("Answer");
+        mButtonHangUp = new Button(this);
+        mButtonHangUp.setText("Hang up");
+        layout.addView(mTextNumber);
+        layout.addView(mTextState);
+        layout.addView(mButtonAnswer);
+        layout.addView(mButtonHangUp);
+        setContentView(layout);
+
+        mButtonAnswer.setOnClickListener(this);
+        mButtonHangUp.setOnClickListener(this);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        InCallUiService.addListener(mCallsListener);
+        updateCall();
+    }
+
+    @Override
+    protected void onStop() {
+        InCallUiService.removeListener(mCallsListener);
+        super.onStop();
+    }
+
+    @Override
+    public void onClick(View view) {
+        Call call = InCallUiService.getCurrentCall();
+        if (call == null) {
+            finish();
+            return;
+        }
+        boolean ringing = InCallUiService.getState(call) == Call.STATE_RINGING;
+        if (view == mButtonAnswer && ringing) {
+            call.answer(VideoProfile.STATE_AUDIO_ONLY);
+        }
+        else if (view == mButtonHangUp) {
+            if (ringing) {
+                call.reject(false, null);
+            } else {
+                call.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Show current call, close screen if there is none
+     */
+    private void updateCall() {
+        Call call = InCallUiService.getCurrentCall();
+        if (call == null) {
+            finish();
+            return;
+        }
+        Uri handle = call.getDetails().getHandle();
+        String number = (handle != null) ? handle.getSchemeSpecificPart() : null;
+        mTextNumber.setText((number != null && !number.isEmpty()) ? number : "Unknown number");
+        int state = InCallUiService.getState(call);
+        mTextState.setText(getStateName(state));
+        mButtonAnswer.setVisibility((state == Call.STATE_RINGING) ? View.VISIBLE : View.GONE);
+    }
+
+    private static String getStateName(int state) {
+        switch (state) {
+            case Call.STATE_RINGING: return "Incoming call";
+            case Call.STATE_DIALING: case Call.STATE_CONNECTING: return "Calling";
+            case Call.STATE_ACTIVE: return "Call in progress";
+            case Call.STATE_HOLDING: return "On hold";
+            case Call.STATE_DISCONNECTING: case Call.STATE_DISCONNECTED: return "Call ended";
+            default: return "";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.omdvd.phonebulkblock;
+
+import android.content.Intent;
+import android.os.Build;
+import android.telecom.Call;
+import android.telecom.InCallService;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-call service of default dialer: telecom binds it for every call instead of system in-call UI,
+ * so it keeps current calls and shows them in {@link InCallActivity}. Default dialer role requires
+ * in-call UI, and the role is required to write phone blocklist.
+ * Telecom calls service on main thread, listeners are called on main thread too.
+ */
+public class InCallUiService extends InCallService {
+
+    private static final List<Call> sCalls = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> sListeners = new CopyOnWriteArrayList<>();
+
+    private final Call.Callback mCallback = new Call.Callback() {
+        @Override
+        public void onStateChanged(Call call, int state) {
+            notifyListeners();
+        }
+    };
+
+    @Override
+    public void onCallAdded(Call call) {
+        super.onCallAdded(call);
+        sCalls.add(call);
+        call.registerCallback(mCallback);
+        notifyListeners();
+        // Bound in-call service is allowed to start activity from background
+        startActivity(new Intent(this, InCallActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+    }
+
+    @Override
+    public void onCallRemoved(Call call) {
+        super.onCallRemoved(call);
+        call.unregisterCallback(mCallback);
+        sCalls.remove(call);
+        notifyListeners();
+    }
+
+    /**
+     * @return ringing call if there is one, else the first not disconnected call, null without calls
+     */
+    @Nullable
+    public static Call getCurrentCall() {
+        Call current = null;
+        for (Call call : sCalls) {
+            int state = getState(call);
+            if (state == Call.STATE_RINGING) {
+                return call;
+            }
+            if (current == null && state != Call.STATE_DISCONNECTED) {
+                current = call;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param listener - called when call is added, removed or changes state
+     */
+    public static void addListener(@NonNull Runnable listener) {
+        sListeners.add(listener);
+    }
+
+    public static void removeListener(@NonNull Runnable listener) {
+        sListeners.remove(listener);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static int getState(@NonNull Call call) {
+        return (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) ? call.getDetails().getState() : call.getState();
+    }
+
+    private static void notifyListeners() {
+        for (Runnable listener : sListeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Dry run of job: count backend calls, predict duration and peak memory of every strategy without writing to blocklist.
+ * Calibration makes only read-only calls: a few number checks spread over plan, the same checks from
+ * parallel workers and one read of whole blocklist, which also gives exact count of numbers diff-only run writes.
+ * Cost of batch call is modelled as round trip of single check plus per-row cost of blocklist read for every number,
+ * provider writes are usually slower than reads, so prediction is a lower bound.
+ */
+public class JobEstimator {
+
+    public static final String STRATEGY_PER_ROW = "per_row";
+    public static final String STRATEGY_BATCHED = "batched";
+    public static final String STRATEGY_PARALLEL = "parallel";
+    public static final String STRATEGY_DIFF_ONLY = "diff_only";
+
+    public static final int DEFAULT_PROBES_COUNT = 16;
+
+    // Rough heap cost on ART: number string in pending batch, range in plan or snapshot
+    public static final long BYTES_PER_NUMBER = 64;
+    public static final long BYTES_PER_RANGE = 64;
+
+    /**
+     * Costs measured on this device and blocklist
+     */
+    public static class Calibration {
+        private final long mCallNanos;
+        private final double mParallelSpeedup;
+        private final long mReadAllNanos;
+        private final long mRowNanos;
+        private final BlockListSnapshot mSnapshot;
+        private final int mErrors;
+
+        /**
+         * @param callNanos - median duration of single backend call
+         * @param parallelSpeedup - throughput of parallel workers relative to single worker, at least 1
+         * @param readAllNanos - duration of blocklist read, -1 if read failed
+         * @param rowNanos - duration of one blocklist row within call
+         * @param snapshot - blocked numbers of plan, null if read failed
+         * @param errors - count of failed calibration calls
+         */
+        public Calibration(long callNanos, double parallelSpeedup, long readAllNanos, long rowNanos, @Nullable BlockListSnapshot snapshot, int errors) {
+            mCallNanos = callNanos;
+            mParallelSpeedup = Math.max(1, parallelSpeedup);
+            mReadAllNanos = readAllNanos;
+            mRowNanos = rowNanos;
+            mSnapshot = snapshot;
+            mErrors = errors;
+        }
+
+        public long getCallNanos() {
+            return mCallNanos;
+        }
+
+        public double getParallelSpeedup() {
+            return mParallelSpeedup;
+        }
+
+        public long getReadAllNanos() {
+            return mReadAllNanos;
+        }
+
+        public long getRowNanos() {
+            return mRowNanos;
+        }
+
+        @Nullable
+        public BlockListSnapshot getSnapshot() {
+            return mSnapshot;
+        }
+
+        public int getErrors() {
+            return mErrors;
+        }
+    }
+
+    /**
+     * Prediction for one strategy
+     */
+    public static class Estimate {
+        private final String mStrategy;
+        private final long mCalls;
+        private final long mNumbers;
+        private final long mDurationNanos;
+        private final long mPeakMemoryBytes;
+
+        Estimate(@NonNull String strategy, long calls, long numbers, long durationNanos, long peakMemoryBytes) {
+            mStrategy = strategy;
+            mCalls = calls;
+            mNumbers = numbers;
+            mDurationNanos = durationNanos;
+            mPeakMemoryBytes = peakMemoryBytes;
+        }
+
+        @NonNull
+        public String getStrategy() {
+            return mStrategy;
+        }
+
+        /**
+         * @return exact count of backend calls, including blocklist read
+         */
+        public long getCalls() {
+            return mCalls;
+        }
+
+        /**
+         * @return exact count of numbers sent to backend
+         */
+        public long getNumbers() {
+            return mNumbers;
+        }
+
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        public long getPeakMemoryBytes() {
+            return mPeakMemoryBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("%s: %d calls, %d numbers, %s, %d KB", mStrategy, mCalls, mNumbers,
+                    BulkJob.formatSecondsToTime(mDurationNanos / 1000000), (mPeakMemoryBytes + 1023) / 1024);
+        }
+    }
+
+    private JobEstimator() {
+    }
+
+    /**
+     * Measure costs of backend with read-only calls
+     *
+     * @param backend - blocklist backend
+     * @param plan - ranges of numbers
+     * @param canonicalizer - canonicalizer used to plan job, may be null
+     * @param probesCount - count of number checks, the same count is checked by parallel workers
+     * @param workersCount - count of parallel workers
+     * @return calibration
+     * @throws InterruptedException - calling thread interrupted while waiting for workers
+     */
+    public static Calibration calibrate(@NonNull BlockListBackend backend, @NonNull JobPlan plan, @Nullable NumberCanonicalizer canonicalizer, int probesCount, int workersCount) throws InterruptedException {
+        int probes = (int) Math.max(1, Math.min(probesCount, plan.getNumbersCount()));
+        String[] numbers = new String[probes];
+        for (int i = 0; i < probes; i++) {
+            numbers[i] = plan.getNumber(i * plan.getNumbersCount() / probes);
+        }
+        int errors = 0;
+
+        long[] latencies = new long[probes];
+        long sequentialStart = System.nanoTime();
+        for (int i = 0; i < probes; i++) {
+            long start = System.nanoTime();
+            if (!probe(backend, numbers[i])) {
+                errors++;
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        long sequentialNanos = System.nanoTime() - sequentialStart;
+        Arrays.sort(latencies);
+
+        double speedup = 1;
+        if (workersCount > 1) {
+            ExecutorService executor = Executors.newFixedThreadPool(workersCount);
+            try {
+                List<Callable<Boolean>> calls = new ArrayList<>(probes);
+                for (String number : numbers) {
+                    calls.add(() -> probe(backend, number));
+                }
+                long parallelStart = System.nanoTime();
+                for (Future<Boolean> call : executor.invokeAll(calls)) {
+                    if (!call.isCancelled() && !getQuietly(call)) {
+                        errors++;
+                    }
+                }
+                long parallelNanos = System.nanoTime() - parallelStart;
+                speedup = Math.min(workersCount, (double) sequentialNanos / Math.max(1, parallelNanos));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        long readAllNanos = -1;
+        long rows = 0;
+        BlockListSnapshot snapshot = null;
+        RowCounter counter = new RowCounter(backend);
+        long start = System.nanoTime();
+        try {
+            snapshot = BlockListSnapshot.read(counter, plan, canonicalizer);
+            readAllNanos = System.nanoTime() - start;
+            rows = counter.mRows;
+        } catch (Exception e) {
+            errors++;
+        }
+        long rowNanos = (rows > 0) ? readAllNanos / rows : 0;
+        return new Calibration(latencies[probes / 2], speedup, readAllNanos, rowNanos, snapshot, errors);
+    }
+
+    /**
+     * Count calls and numbers of every strategy and predict their duration and memory
+     *
+     * @param plan - ranges of numbers
+     * @param action - action with blocklist
+     * @param calibration - measured costs
+     * @param batchSize - max count of numbers in one backend call
+     * @param workersCount - count of parallel workers
+     * @param shardSize - count of numbers processed by worker at once, batches never cross shards
+     * @return estimates of per-row, batched, parallel and diff-only strategies, diff-only is missing if blocklist read failed
+     */
+    @NonNull
+    public static List<Estimate> estimate(@NonNull JobPlan plan, int action, @NonNull Calibration calibration, int batchSize, int workersCount, long shardSize) {
+        BulkAction.getName(action); // throws on unknown action
+        long count = plan.getNumbersCount();
+        long planBytes = plan.getRanges().size() * BYTES_PER_RANGE * 2;
+        long callNanos = calibration.getCallNanos();
+        long rowNanos = calibration.getRowNanos();
+        double speedup = Math.min(workersCount, calibration.getParallelSpeedup());
+        // Check has no batch call, every strategy without snapshot checks numbers one by one
+        int writeBatchSize = (action == BulkAction.CHECK) ? 1 : batchSize;
+
+        List<Estimate> estimates = new ArrayList<>();
+        estimates.add(new Estimate(STRATEGY_PER_ROW, count, count, count * (callNanos + rowNanos), planBytes + BYTES_PER_NUMBER));
+
+        long batches = 0;
+        long diffNumbers = 0, diffBatches = 0;
+        BlockListSnapshot snapshot = calibration.getSnapshot();
+        for (NumberRange range : plan.getRanges()) {
+            for (long from = 0; from < range.getSize(); from += shardSize) {
+                long size = Math.min(range.getSize() - from, shardSize);
+                batches += ceilDiv(size, writeBatchSize);
+                if (snapshot != null && action != BulkAction.CHECK) {
+                    NumberRange shard = new NumberRange(range.hasPlus(), range.getDigits(), range.getFirst() + from, range.getFirst() + from + size - 1);
+                    long blocked = snapshot.countBlocked(shard);
+                    long diff = (action == BulkAction.BLOCK) ? size - blocked : blocked;
+                    diffNumbers += diff;
+                    diffBatches += ceilDiv(diff, batchSize);
+                }
+            }
+        }
+        long batchedNanos = batches * callNanos + count * rowNanos;
+        long batchBytes = Math.min(writeBatchSize, count) * BYTES_PER_NUMBER;
+        estimates.add(new Estimate(STRATEGY_BATCHED, batches, count, batchedNanos, planBytes + batchBytes));
+        estimates.add(new Estimate(STRATEGY_PARALLEL, batches, count, (long) (batchedNanos / speedup), planBytes + workersCount * batchBytes));
+
+        if (snapshot != null) {
+            // Snapshot builder may hold twice its ranges while growing
+            long snapshotBytes = snapshot.getBlocked().getRangesCount() * BYTES_PER_RANGE * 2;
+            long writeNanos = (long) ((diffBatches * callNanos + diffNumbers * rowNanos) / speedup);
+            long writeBytes = (diffNumbers > 0) ? workersCount * Math.min(batchSize, diffNumbers) * BYTES_PER_NUMBER : 0;
+            estimates.add(new Estimate(STRATEGY_DIFF_ONLY, 1 + diffBatches, diffNumbers, calibration.getReadAllNanos() + writeNanos, planBytes + snapshotBytes + writeBytes));
+        }
+        return estimates;
+    }
+
+    /**
+     * Text report of dry run
+     *
+     * @param plan - ranges of numbers
+     * @param action - action with blocklist
+     * @param calibration - measured costs
+     * @param estimates - estimates of strategies
+     * @return text
+     */
+    @NonNull
+    public static String formatReport(@NonNull JobPlan plan, int action, @NonNull Calibration calibration, @NonNull List<Estimate> estimates) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Dry run of %s %s: %d numbers in %d ranges", BulkAction.getName(action), plan, plan.getNumbersCount(), plan.getRanges().size()));
+        if (plan.getDuplicatesCount() > 0) {
+            report.append(String.format(", %d duplicates merged", plan.getDuplicatesCount()));
+        }
+        report.append(String.format(".\nCall %.2f ms, row %d ns, read of blocklist %d ms, parallel speedup %.1f.",
+                calibration.getCallNanos() / 1e6, calibration.getRowNanos(), calibration.getReadAllNanos() / 1000000, calibration.getParallelSpeedup()));
+        if (calibration.getSnapshot() != null) {
+            report.append(String.format("\n%d numbers of plan are blocked now.", calibration.getSnapshot().countBlocked()));
+        }
+        if (calibration.getErrors() > 0) {
+            report.append(String.format("\n%d calibration calls failed.", calibration.getErrors()));
+        }
+        for (Estimate estimate : estimates) {
+            report.append('\n').append(estimate);
+        }
+        return report.toString();
+    }
+
+    private static boolean probe(BlockListBackend backend, String number) {
+        try {
+            backend.isBlocked(number);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean getQuietly(Future<Boolean> call) throws InterruptedException {
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static long ceilDiv(long count, long size) {
+        return (count + size - 1) / size;
+    }
+
+    /**
+     * Pass blocklist read through and count rows, all other calls are rejected as dry run never writes
+     */
+    private static class RowCounter implements BlockListBackend {
+        private final BlockListBackend mBackend;
+        private long mRows;
+
+        RowCounter(BlockListBackend backend) {
+            mBackend = backend;
+        }
+
+        @Override
+        public void readAll(@NonNull EntryVisitor visitor) throws Exception {
+            mBackend.readAll((originalNumber, e164Number) -> {
+                mRows++;
+                visitor.visit(originalNumber, e164Number);
+            });
+        }
+
+        @Override
+        public boolean isBlocked(@NonNull String number) throws Exception {
+            return mBackend.isBlocked(number);
+        }
+
+        @Override
+        public int blockBatch(@NonNull List<String> numbers) {
+            throw new UnsupportedOperationException("Dry run does not write");
+        }
+
+        @Override
+        public int unblockBatch(@NonNull List<String> numbers) {
+            throw new UnsupportedOperationException("Dry run does not write");
+        }
+    }
+}
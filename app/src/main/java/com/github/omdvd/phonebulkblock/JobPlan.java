@@ -0,0 +1,193 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted disjoint ranges of numbers processed by one bulk job.
+ * Numbers of all ranges form one index space: index 0 is the first number of the first range.
+ */
+public class JobPlan {
+
+    private final List<NumberRange> mRanges;
+    private final NumberRangeSet mNumbers;
+    private final long[] mOffsets;
+    private final long mNumbersCount;
+    private final long mInputNumbersCount;
+
+    /**
+     * @param ranges - sorted disjoint ranges
+     * @param inputNumbersCount - count of numbers in input before overlaps were merged
+     */
+    JobPlan(@NonNull List<NumberRange> ranges, long inputNumbersCount) {
+        mRanges = Collections.unmodifiableList(ranges);
+        mOffsets = new long[ranges.size() + 1];
+        for (int i = 0; i < ranges.size(); i++) {
+            mOffsets[i + 1] = mOffsets[i] + ranges.get(i).getSize();
+        }
+        mNumbersCount = mOffsets[ranges.size()];
+        mNumbers = NumberRangeSet.of(ranges);
+        mInputNumbersCount = inputNumbersCount;
+    }
+
+    /**
+     * Plan of single pattern
+     *
+     * @param expander - pattern
+     * @return plan
+     */
+    public static JobPlan of(@NonNull PatternExpander expander) {
+        NumberRange range = NumberRange.of(expander);
+        return new JobPlan(Collections.singletonList(range), range.getSize());
+    }
+
+    public List<NumberRange> getRanges() {
+        return mRanges;
+    }
+
+    /**
+     * @return all numbers of plan as set
+     */
+    public NumberRangeSet getNumbers() {
+        return mNumbers;
+    }
+
+    /**
+     * Plan of numbers not processed yet
+     *
+     * @param done - processed numbers
+     * @return plan of remaining numbers, '+' of ranges is kept
+     */
+    public JobPlan minus(@NonNull NumberRangeSet done) {
+        List<NumberRange> ranges = new ArrayList<>();
+        long numbersCount = 0;
+        for (NumberRange range : mRanges) {
+            for (NumberRange rest : NumberRangeSet.of(range).difference(done.subSet(range))) {
+                ranges.add(rest.withPlus(range.hasPlus()));
+                numbersCount += rest.getSize();
+            }
+        }
+        return new JobPlan(ranges, numbersCount);
+    }
+
+    /**
+     * @param rangeIndex - index of range
+     * @return index of first number of range in plan
+     */
+    public long getRangeOffset(int rangeIndex) {
+        return mOffsets[rangeIndex];
+    }
+
+    public long getNumbersCount() {
+        return mNumbersCount;
+    }
+
+    /**
+     * @return count of numbers in input patterns and ranges, including repeated ones
+     */
+    public long getInputNumbersCount() {
+        return mInputNumbersCount;
+    }
+
+    /**
+     * @return count of operations eliminated by merging overlapping input
+     */
+    public long getDuplicatesCount() {
+        return mInputNumbersCount - mNumbersCount;
+    }
+
+    /**
+     * Build single number of plan
+     *
+     * @param index - number index in plan
+     * @return phone number
+     */
+    public String getNumber(long index) {
+        int rangeIndex = findRange(index);
+        return mRanges.get(rangeIndex).getNumber(index - mOffsets[rangeIndex]);
+    }
+
+    /**
+     * Find index of number in plan, digits are compared ignoring '+' and separators
+     *
+     * @param number - phone number
+     * @return index of number or -1 if number is not in plan
+     */
+    public long indexOf(@NonNull CharSequence number) {
+        int digits = 0;
+        long value = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > PatternIndex.MAX_DIGITS) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        if (digits == 0) {
+            return -1;
+        }
+
+        // Find last range starting at or before number
+        int low = 0;
+        int high = mRanges.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            NumberRange range = mRanges.get(middle);
+            if (range.getDigits() < digits || (range.getDigits() == digits && range.getFirst() <= value)) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found < 0 || !mRanges.get(found).contains(digits, value)) {
+            return -1;
+        }
+        return mOffsets[found] + value - mRanges.get(found).getFirst();
+    }
+
+    /**
+     * @param index - number index in plan
+     * @return index of range containing number
+     */
+    private int findRange(long index) {
+        if (index < 0 || index >= mNumbersCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + mNumbersCount);
+        }
+        int low = 0;
+        int high = mRanges.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (mOffsets[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Text of plan, identifies job in checkpoints
+     *
+     * @return comma separated ranges
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (NumberRange range : mRanges) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(range);
+        }
+        return text.toString();
+    }
+}
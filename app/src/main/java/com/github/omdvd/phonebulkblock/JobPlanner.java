@@ -0,0 +1,110 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turn list of patterns and explicit ranges into plan of one job.
+ * Overlapping, adjacent and contained ranges are merged by {@link NumberRangeSet}, so every number is processed once.
+ */
+public class JobPlanner {
+
+    public static final String INPUT_SEPARATORS = "[,;\\n]";
+
+    // Plan, snapshot and checkpoint keep merged ranges of long keys, so their size does not depend on count of numbers.
+    // The cap only bounds duration: at a few thousand provider writes per second a larger job would run for more than a week.
+    public static final long MAX_NUMBERS_COUNT = Integer.MAX_VALUE;
+
+    private JobPlanner() {
+    }
+
+    /**
+     * Parse list of patterns and ranges separated by ',', ';' or new line.
+     * Item with placeholders is pattern, item "first..last" is range, other item is single number.
+     *
+     * @param input - list of patterns and ranges
+     * @return ranges in input order
+     * @throws IllegalArgumentException - unsupported format of some item or empty input
+     */
+    public static List<NumberRange> parse(@NonNull String input) throws IllegalArgumentException {
+        List<NumberRange> ranges = new ArrayList<>();
+        for (String item : input.split(INPUT_SEPARATORS)) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            if (item.contains(PatternExpander.DEFAULT_PLACEHOLDER)) {
+                ranges.add(NumberRange.of(new PatternExpander(item, PatternExpander.DEFAULT_PLACEHOLDER)));
+            } else {
+                ranges.add(NumberRange.parse(item));
+            }
+        }
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("Argument pattern is empty");
+        }
+        return ranges;
+    }
+
+    /**
+     * Parse input and plan job
+     *
+     * @param input - list of patterns and ranges
+     * @return plan
+     * @throws IllegalArgumentException - unsupported input or too many numbers
+     */
+    public static JobPlan plan(@NonNull String input) throws IllegalArgumentException {
+        return plan(parse(input));
+    }
+
+    /**
+     * Parse input, normalize its numbers to E.164 form once per range and plan job.
+     * Plan holds canonical numbers, so numbers generated by job need no normalization.
+     *
+     * @param input - list of patterns and ranges
+     * @param canonicalizer - canonicalizer of numbers, may be null to keep numbers as they are written
+     * @return plan
+     * @throws IllegalArgumentException - unsupported input or too many numbers
+     */
+    public static JobPlan plan(@NonNull String input, @Nullable NumberCanonicalizer canonicalizer) throws IllegalArgumentException {
+        List<NumberRange> ranges = parse(input);
+        return plan((canonicalizer != null) ? canonicalizer.canonicalize(ranges) : ranges);
+    }
+
+    /**
+     * Merge ranges into minimal set of sorted disjoint ranges
+     *
+     * @param input - ranges
+     * @return plan
+     * @throws IllegalArgumentException - too many numbers
+     */
+    public static JobPlan plan(@NonNull List<NumberRange> input) throws IllegalArgumentException {
+        NumberRangeSet numbers = NumberRangeSet.of(input);
+        if (numbers.getSize() > MAX_NUMBERS_COUNT) {
+            throw new IllegalArgumentException("Too many numbers: " + numbers.getSize());
+        }
+
+        List<NumberRange> sorted = new ArrayList<>(input);
+        Collections.sort(sorted);
+        long inputNumbersCount = 0;
+        for (NumberRange range : sorted) {
+            inputNumbersCount += range.getSize();
+        }
+
+        // Merged range is written with '+' if any input range inside it is written with '+'
+        List<NumberRange> ranges = new ArrayList<>(numbers.getRangesCount());
+        int next = 0;
+        for (NumberRange range : numbers) {
+            boolean plus = false;
+            while (next < sorted.size() && sorted.get(next).getDigits() == range.getDigits() && sorted.get(next).getFirst() <= range.getLast()) {
+                plus |= sorted.get(next).hasPlus();
+                next++;
+            }
+            ranges.add(range.withPlus(plus));
+        }
+        return new JobPlan(ranges, inputNumbersCount);
+    }
+}
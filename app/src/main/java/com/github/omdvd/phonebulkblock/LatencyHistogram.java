@@ -0,0 +1,99 @@
+package com.github.omdvd.phonebulkblock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with fixed memory, safe for many threads.
+ * Every power of two is split into 8 buckets, so percentiles are exact within 12.5%.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * @param nanos - latency in nanoseconds, negative value is counted as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        mBuckets.incrementAndGet(bucketIndex(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        mMax.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * @return mean latency in nanoseconds, 0 if nothing recorded
+     */
+    public long getMean() {
+        long count = mCount.get();
+        return (count == 0) ? 0 : mSum.get() / count;
+    }
+
+    /**
+     * @param percentile - percentile from 0 to 100
+     * @return upper bound of bucket containing percentile in nanoseconds, 0 if nothing recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            seen += mBuckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(bucketUpperBound(i), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    /**
+     * Add all latencies of other histogram
+     *
+     * @param other - histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            mBuckets.addAndGet(i, other.mBuckets.get(i));
+        }
+        mCount.addAndGet(other.mCount.get());
+        mSum.addAndGet(other.mSum.get());
+        mMax.accumulateAndGet(other.mMax.get(), Math::max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
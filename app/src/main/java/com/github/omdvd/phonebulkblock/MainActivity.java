@@ -1,29 +1,26 @@
 package com.github.omdvd.phonebulkblock;
 
-import static android.provider.BlockedNumberContract.isBlocked;
-import static android.provider.BlockedNumberContract.unblock;
-
 import android.Manifest;
 import android.app.AlertDialog;
 import android.app.role.RoleManager;
-import android.content.ContentValues;
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
-import android.provider.BlockedNumberContract;
+import android.os.IBinder;
+import android.os.Looper;
 import android.provider.Settings;
 import android.telecom.TelecomManager;
 import android.view.View;
-import android.util.Pair;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
@@ -36,6 +33,8 @@ import com.karumi.dexter.PermissionToken;
 import com.karumi.dexter.listener.PermissionRequest;
 import com.karumi.dexter.listener.multi.MultiplePermissionsListener;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity
@@ -47,18 +46,48 @@ public class MainActivity extends AppCompatActivity
 
     private final int REQUEST_CODE_SET_DEFAULT_DIALER = 1001;
     private final int REQUEST_CODE_SHOW_SETTINGS_DLG = 1002;
-
-    private final int ACTION_BLOCK_PATTERN = 0;
-    private final int ACTION_CHECK_PATTERN = 1;
-    private final int ACTION_UNBLOCK_PATTERN = 2;
-    private Button mButtonDoBlock, mButtonDoCheck, mButtonDoStop, mButtonDoUnBlock;
-    private EditText mInputPhoneNumber;
+    private final int REQUEST_CODE_EXPORT_FILE = 1003;
+    private final int REQUEST_CODE_IMPORT_FILE = 1004;
+    private static final String EXPORT_FILE_NAME = "blocklist.pbbf.gz";
+    // Suggest prefixes of 10000 numbers with at least 3 different callers
+    private static final int SUGGESTION_PLACEHOLDERS = 4;
+    private static final int SUGGESTION_MIN_NUMBERS = 3;
+    private static final int SUGGESTIONS_COUNT = 10;
+
+    private final int ACTION_BLOCK_PATTERN = BulkAction.BLOCK;
+    private final int ACTION_CHECK_PATTERN = BulkAction.CHECK;
+    private final int ACTION_UNBLOCK_PATTERN = BulkAction.UNBLOCK;
+    private Button mButtonDoBlock, mButtonDoCheck, mButtonDoStop, mButtonDoUnBlock, mButtonDoScreen, mButtonDoUnScreen, mButtonDoExport, mButtonDoImport, mButtonDoSuggest, mButtonDoEstimate;
+    private EditText mInputPhoneNumber, mInputCountry;
+    private CountrySettingsStore mCountrySettings;
     private Handler mHandler;
     private ProgressBar mProgressAccessToList;
-    private String mPatternPrefix, mCurrentNumber;
-    private boolean mFlagShowStatus, mFlagStop;
-    private int mNumbersCount, mPlaceholdersCount, mCountNumber, mCountProgress, mProgressDiv, mCountNumbersBlocked, mCountNumbersNonBlocked, mCountNumbersErrors;
-    private long mDurationStart;
+    private BulkJobService mService;
+    private BulkJob mSampledJob;
+    private ProgressSampler mSampler;
+    private boolean mFlagShowStatus, mFlagJobRequested;
+
+    private final ServiceConnection mServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            mService = ((BulkJobService.LocalBinder) service).getService();
+            updateJobStatus();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            mService = null;
+        }
+    };
+
+    // Sample job counters on fixed tick instead of posting messages from workers
+    private final Runnable mProgressTick = new Runnable() {
+        @Override
+        public void run() {
+            updateJobStatus();
+            mHandler.postDelayed(this, ProgressSampler.TICK_MILLIS);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,7 +104,14 @@ public class MainActivity extends AppCompatActivity
         mButtonDoCheck = findViewById(R.id.button_do_check);
         mButtonDoStop = findViewById(R.id.button_do_stop);
         mButtonDoUnBlock = findViewById(R.id.button_do_unblock);
+        mButtonDoScreen = findViewById(R.id.button_do_screen);
+        mButtonDoUnScreen = findViewById(R.id.button_do_unscreen);
+        mButtonDoExport = findViewById(R.id.button_do_export);
+        mButtonDoImport = findViewById(R.id.button_do_import);
+        mButtonDoSuggest = findViewById(R.id.button_do_suggest);
+        mButtonDoEstimate = findViewById(R.id.button_do_estimate);
         mInputPhoneNumber = findViewById(R.id.input_phone_number);
+        mInputCountry = findViewById(R.id.input_country);
         mProgressAccessToList = findViewById(R.id.progress_bar);
         mProgressAccessToList.setVisibility(View.GONE);
 
@@ -83,11 +119,22 @@ public class MainActivity extends AppCompatActivity
         mButtonDoCheck.setOnClickListener(this);
         mButtonDoStop.setOnClickListener(this);
         mButtonDoUnBlock.setOnClickListener(this);
-
-        mHandler = new Handler();
+        mButtonDoScreen.setOnClickListener(this);
+        mButtonDoUnScreen.setOnClickListener(this);
+        mButtonDoExport.setOnClickListener(this);
+        mButtonDoImport.setOnClickListener(this);
+        mButtonDoSuggest.setOnClickListener(this);
+        mButtonDoEstimate.setOnClickListener(this);
+
+        mHandler = new Handler(Looper.getMainLooper());
+
+        mCountrySettings = new CountrySettingsStore(getFilesDir());
+        NumberCanonicalizer canonicalizer = mCountrySettings.load();
+        if (canonicalizer != null) {
+            mInputCountry.setText(canonicalizer.toString());
+        }
 
         mFlagShowStatus = false;
-        mFlagStop = false;
     }
 
     @Override
@@ -95,10 +142,13 @@ public class MainActivity extends AppCompatActivity
         super.onStart();
         checkDefaultDialer();
 
+        List<String> permissions = new ArrayList<>();
+        permissions.add(Manifest.permission.CALL_PHONE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            permissions.add(Manifest.permission.POST_NOTIFICATIONS);
+        }
         Dexter.withContext(this)
-                .withPermissions(
-                        Manifest.permission.CALL_PHONE
-                )
+                .withPermissions(permissions)
                 .withListener(new MultiplePermissionsListener() {
                     @Override
                     public void onPermissionsChecked(MultiplePermissionsReport multiplePermissionsReport) {
@@ -111,6 +161,17 @@ public class MainActivity extends AppCompatActivity
                         permissionToken.continuePermissionRequest();
                     }
         }).check();
+
+        bindService(new Intent(this, BulkJobService.class), mServiceConnection, BIND_AUTO_CREATE);
+        mHandler.postDelayed(mProgressTick, ProgressSampler.TICK_MILLIS);
+    }
+
+    @Override
+    protected void onStop() {
+        mHandler.removeCallbacks(mProgressTick);
+        unbindService(mServiceConnection);
+        mService = null;
+        super.onStop();
     }
 
     @Override
@@ -119,6 +180,11 @@ public class MainActivity extends AppCompatActivity
         if (requestCode == REQUEST_CODE_SET_DEFAULT_DIALER) {
             checkSetDefaultDialerResult(resultCode);
         }
+        else if ((requestCode == REQUEST_CODE_EXPORT_FILE || requestCode == REQUEST_CODE_IMPORT_FILE)
+                && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            BulkJobService.startTransfer(this, (requestCode == REQUEST_CODE_EXPORT_FILE) ? BulkJobService.ACTION_EXPORT : BulkJobService.ACTION_IMPORT, data.getData());
+            Toast.makeText(this, "Result will be shown in notification", Toast.LENGTH_SHORT).show();
+        }
     }
 
     @Override
@@ -126,22 +192,52 @@ public class MainActivity extends AppCompatActivity
         String phoneNumber = mInputPhoneNumber.getText().toString().trim();
         int id = view.getId();
 
+        // File transfers do not need pattern
+        if (id == R.id.button_do_export) {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("application/octet-stream");
+            intent.putExtra(Intent.EXTRA_TITLE, EXPORT_FILE_NAME);
+            startActivityForResult(intent, REQUEST_CODE_EXPORT_FILE);
+            return;
+        }
+        else if (id == R.id.button_do_import) {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            startActivityForResult(intent, REQUEST_CODE_IMPORT_FILE);
+            return;
+        }
+        else if (id == R.id.button_do_suggest) {
+            showPatternSuggestions();
+            return;
+        }
+
         if (phoneNumber.isEmpty()) {
             Toast.makeText(MainActivity.this, "Please enter a valid phone number pattern", Toast.LENGTH_SHORT).show();
             return;
         }
 
         if (id == R.id.button_do_block) {
-            doBLockListAction(phoneNumber, "*", ACTION_BLOCK_PATTERN);
+            doBLockListAction(phoneNumber, ACTION_BLOCK_PATTERN);
         }
         else if (id == R.id.button_do_check) {
-            doBLockListAction(phoneNumber, "*", ACTION_CHECK_PATTERN);
+            doBLockListAction(phoneNumber, ACTION_CHECK_PATTERN);
+        }
+        else if (id == R.id.button_do_estimate) {
+            showEstimateActions(phoneNumber);
         }
         else if (id == R.id.button_do_stop) {
             mFlagShowStatus = true;
         }
         else if (id == R.id.button_do_unblock) {
-            doBLockListAction(phoneNumber, "*", ACTION_UNBLOCK_PATTERN);
+            doBLockListAction(phoneNumber, ACTION_UNBLOCK_PATTERN);
+        }
+        else if (id == R.id.button_do_screen) {
+            doScreeningAction(phoneNumber, true);
+        }
+        else if (id == R.id.button_do_unscreen) {
+            doScreeningAction(phoneNumber, false);
         }
         else {
             throw new IllegalStateException("Unexpected value: " + getResources().getResourceName(id));
@@ -176,141 +272,223 @@ public class MainActivity extends AppCompatActivity
     }
 
     /**
-     * Work with phone blocklist - check, add or delete from phone blocklist numbers from given pattern
+     * Work with phone blocklist - check, add or delete from phone blocklist numbers from given patterns and ranges.
+     * Overlapping patterns and ranges are merged, so every number is processed once.
+     * Job runs in BulkJobService and continues from checkpoint if the same job was interrupted.
      *
-     * @param inputPattern - pattern
-     * @param placeHolder - placeholder
+     * @param inputPattern - list of patterns and ranges
      * @param setAction - action with blocklist
      */
-    private void doBLockListAction(String inputPattern, String placeHolder, int setAction) {
-        int tmpProgressMax;
-
+    private void doBLockListAction(String inputPattern, int setAction) {
+        JobPlan plan;
         try {
-            Pair<Integer, String> patternData = doParsePattern(inputPattern, placeHolder);
-            mPlaceholdersCount = patternData.first;
-            mPatternPrefix = patternData.second;
+            plan = JobPlanner.plan(inputPattern, loadCanonicalizer());
         } catch (Exception e) {
             Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
             return;
         }
-        mNumbersCount = (int) Math.pow(10, mPlaceholdersCount);
 
-        // On big number lists reduce setProgress() calls to 100 per task
-        if (mNumbersCount <= 100) {
-            mProgressDiv = 1;
-            tmpProgressMax = mNumbersCount;
-        } else {
-            mProgressDiv = (int)Math.pow(10, (mPlaceholdersCount - 2));
-            tmpProgressMax = 100;
-        }
-
-        mCountNumbersBlocked = 0;
-        mCountNumbersNonBlocked = 0;
-        mCountNumbersErrors = 0;
-        mCountProgress = mProgressDiv;
-        mFlagStop = false;
-        mProgressAccessToList.setMax(tmpProgressMax);
-        mProgressAccessToList.setProgress(0);
-        mProgressAccessToList.setVisibility(View.VISIBLE);
-        mDurationStart = System.currentTimeMillis();
+        BulkJobService.startJob(this, plan.toString(), setAction);
+        mFlagJobRequested = true;
         setButtonInput(false);
+    }
 
-        // Run slow task in another thread
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                for (mCountNumber = 0; mCountNumber < mNumbersCount; mCountNumber++) {
-                    mCurrentNumber = String.format("%s%0" + mPlaceholdersCount + "d", mPatternPrefix, mCountNumber);
-                    switch (setAction) {
-                        case (ACTION_CHECK_PATTERN):
-                            try {
-                                if (isBlocked(MainActivity.this, mCurrentNumber)) {
-                                    mCountNumbersBlocked++;
-                                } else {
-                                    mCountNumbersNonBlocked++;
-                                }
-                            } catch (Exception e) {
-                                mCountNumbersErrors++;
-                            }
-                            break;
-
-                        case (ACTION_BLOCK_PATTERN):
-                            ContentValues values = new ContentValues();
-                            values.put(BlockedNumberContract.BlockedNumbers.COLUMN_ORIGINAL_NUMBER, mCurrentNumber);
-                            try {
-                                getContentResolver().insert(BlockedNumberContract.BlockedNumbers.CONTENT_URI, values);
-                                mCountNumbersBlocked++;
-                            } catch (SecurityException e) {
-                                mCountNumbersErrors++;
-                            }
-                            break;
-
-                        case (ACTION_UNBLOCK_PATTERN):
-                            try {
-                                unblock(MainActivity.this, mCurrentNumber);
-                                mCountNumbersBlocked++;
-                            } catch (Exception e) {
-                                mCountNumbersErrors++;
-                            }
-                            break;
-                    }
+    /**
+     * Ask which action to estimate, then estimate it
+     *
+     * @param inputPattern - list of patterns and ranges
+     */
+    private void showEstimateActions(String inputPattern) {
+        int[] actions = {ACTION_BLOCK_PATTERN, ACTION_CHECK_PATTERN, ACTION_UNBLOCK_PATTERN};
+        String[] items = {"Block", "Check", "Unblock"};
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Estimate action");
+        builder.setItems(items, (dialog, which) -> {
+            dialog.cancel();
+            doEstimateAction(inputPattern, actions[which]);
+        });
+        builder.setNegativeButton("Cancel", (dialog, which) -> {
+            dialog.cancel();
+        });
+        builder.show();
+    }
 
-                    mHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            mCountProgress--;
-                            if (mCountProgress == 0) {
-                                mProgressAccessToList.setProgress(mProgressAccessToList.getProgress() + 1);
-                                mCountProgress = mProgressDiv;
-                            }
-                        }
-                    });
-
-                    mHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (mFlagShowStatus) {
-                                long timeFromStart = (System.currentTimeMillis() - mDurationStart);
-                                float workSpeed = ((float)mCountNumber) / ((float)timeFromStart / 1000f);
-                                long estimatedTime = (long)((float)((mNumbersCount - mCountNumber) * 1000l) / workSpeed);
-                                String formattedItem = String.format("Numbers total: %d, processed: %d, errors: %d.\nElapsed time: %s\nSpeed: %.1f numbers/s\nEstimated time: %s", mNumbersCount, mCountNumber, mCountNumbersErrors, formatSecondsToTime(timeFromStart), workSpeed, formatSecondsToTime(estimatedTime));
-                                showDialogOkCancel("Progress", formattedItem);
-                                mFlagShowStatus = false;
-                            }
-                        }
-                    });
+    /**
+     * Dry run - plan job and measure backend with read-only calls, show calls, duration and memory of every strategy
+     *
+     * @param inputPattern - list of patterns and ranges
+     * @param setAction - action with blocklist
+     */
+    private void doEstimateAction(String inputPattern, int setAction) {
+        JobPlan plan;
+        NumberCanonicalizer canonicalizer;
+        try {
+            // Dry run does not store country settings
+            canonicalizer = NumberCanonicalizer.parse(mInputCountry.getText().toString());
+            plan = JobPlanner.plan(inputPattern, canonicalizer);
+        } catch (Exception e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                    if (mFlagStop) {
-                        break;
-                    }
+        mButtonDoEstimate.setEnabled(false);
+        BlockListBackend backend = new ProviderBlockListBackend(this);
+        new Thread(() -> {
+            String message;
+            try {
+                JobEstimator.Calibration calibration = JobEstimator.calibrate(backend, plan, canonicalizer, JobEstimator.DEFAULT_PROBES_COUNT, BulkActionRunner.DEFAULT_WORKERS_COUNT);
+                List<JobEstimator.Estimate> estimates = JobEstimator.estimate(plan, setAction, calibration, BlockListBatchWriter.DEFAULT_BATCH_SIZE, BulkActionRunner.DEFAULT_WORKERS_COUNT, BulkActionRunner.DEFAULT_SHARD_SIZE);
+                message = JobEstimator.formatReport(plan, setAction, calibration, estimates);
+            } catch (InterruptedException e) {
+                message = "Estimate interrupted";
+            } catch (RuntimeException e) {
+                message = "Estimate failed: " + e.getMessage();
+            }
+            String result = message;
+            mHandler.post(() -> {
+                mButtonDoEstimate.setEnabled(true);
+                if (!isFinishing()) {
+                    showDialogOk("Estimate", result);
                 }
+            });
+        }, "JobEstimator").start();
+    }
 
-                mHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        String formattedItem;
-                        switch (setAction) {
-                            case (ACTION_CHECK_PATTERN):
-                                formattedItem = String.format("%d numbers blocked, %d numbers not blocked.\n%d errors occured.\nElapsed time: %s", mCountNumbersBlocked, mCountNumbersNonBlocked, mCountNumbersErrors, formatSecondsToTime(System.currentTimeMillis() - mDurationStart));
-                                break;
-                            case (ACTION_BLOCK_PATTERN):
-                                formattedItem = String.format("%d numbers blocked.\n%d errors occured.\nElapsed time: %s", mCountNumbersBlocked, mCountNumbersErrors, formatSecondsToTime(System.currentTimeMillis() - mDurationStart));
-                                break;
-                            case (ACTION_UNBLOCK_PATTERN):
-                                formattedItem = String.format("%d numbers unblocked.\n%d errors occured.\nElapsed time: %s", mCountNumbersBlocked, mCountNumbersErrors, formatSecondsToTime(System.currentTimeMillis() - mDurationStart));
-                                break;
-                            default:
-                                formattedItem = "Something went wrong";
-                        }
+    /**
+     * Add or remove pattern of numbers rejected by CallService without writing them to phone blocklist
+     *
+     * @param inputPattern - pattern
+     * @param setScreen - true to add pattern, false to remove
+     */
+    private void doScreeningAction(String inputPattern, boolean setScreen) {
+        String pattern;
+        try {
+            PatternExpander expander = new PatternExpander(inputPattern, PatternExpander.DEFAULT_PLACEHOLDER);
+            pattern = expander.getPattern();
+            NumberCanonicalizer canonicalizer = loadCanonicalizer();
+            if (canonicalizer != null) {
+                // Pattern is stored in the same form as incoming numbers are matched
+                NumberRange range = NumberRange.of(expander);
+                NumberRange canonical = canonicalizer.canonicalize(range);
+                if (canonical != range) {
+                    pattern = canonical.toString();
+                }
+            }
+        } catch (Exception e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                        showDialogOk("Result" ,formattedItem);
-                        mProgressAccessToList.setProgress(0);
-                        mProgressAccessToList.setVisibility(View.GONE);
-                        setButtonInput(true);
-                    }
-                });
+        ScreeningPatternStore store = new ScreeningPatternStore(getFilesDir());
+        String message;
+        try {
+            if (setScreen) {
+                message = store.add(pattern) ? "Calls from pattern will be rejected" : "Pattern is already screened";
+            } else {
+                message = store.remove(pattern) ? "Pattern removed from screening" : "Pattern is not screened";
+            }
+            CallService.reloadScreening();
+            message += ", screened patterns: " + store.load().size();
+        } catch (IOException e) {
+            message = "Can not save screening patterns: " + e.getMessage();
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Show prefixes of numbers which called the most, selected pattern is put into input
+     */
+    private void showPatternSuggestions() {
+        List<HotNumberTracker.Suggestion> suggestions = CallService.getHotNumbers(getFilesDir()).suggestPatterns(SUGGESTION_PLACEHOLDERS, SUGGESTION_MIN_NUMBERS, SUGGESTIONS_COUNT);
+        if (suggestions.isEmpty()) {
+            Toast.makeText(this, "No repeated calls from similar numbers yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] items = new String[suggestions.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = suggestions.get(i).toString();
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Patterns of frequent callers");
+        builder.setItems(items, (dialog, which) -> {
+            mInputPhoneNumber.setText(suggestions.get(which).getPattern());
+            dialog.cancel();
+        });
+        builder.setNegativeButton("Cancel", (dialog, which) -> {
+            dialog.cancel();
+        });
+        builder.show();
+    }
+
+    /**
+     * Parse country settings from input and store them for BulkJobService and CallService
+     *
+     * @return canonicalizer or null if country is not set
+     * @throws IllegalArgumentException - unsupported country settings
+     * @throws IOException - settings can not be stored
+     */
+    @Nullable
+    private NumberCanonicalizer loadCanonicalizer() throws IllegalArgumentException, IOException {
+        NumberCanonicalizer canonicalizer = NumberCanonicalizer.parse(mInputCountry.getText().toString());
+        NumberCanonicalizer stored = mCountrySettings.load();
+        if ((canonicalizer == null) ? stored != null : (stored == null || !canonicalizer.toString().equals(stored.toString()))) {
+            mCountrySettings.save(canonicalizer);
+            CallService.reloadScreening();
+        }
+        return canonicalizer;
+    }
+
+    /**
+     * Show progress of current job, show result of finished job
+     */
+    private void updateJobStatus() {
+        BulkJob job = (mService != null) ? mService.getJob() : null;
+        if (job == null) {
+            String rejection = (mService != null && mFlagJobRequested) ? mService.takeRejectionMessage() : null;
+            if (rejection != null) {
+                mFlagJobRequested = false;
+                showDialogOk("Error", rejection);
+            }
+            // Service has not picked up requested job yet
+            if (!mFlagJobRequested) {
+                mSampledJob = null;
+                mProgressAccessToList.setVisibility(View.GONE);
+                setButtonInput(true);
+            }
+            return;
+        }
+        mFlagJobRequested = false;
+
+        // On big number lists limit progress bar to 100 steps
+        int progressMax = (int) Math.min(job.getNumbersCount(), 100);
+        if (job != mSampledJob) {
+            mSampledJob = job;
+            mSampler = new ProgressSampler(job.getNumbersCount(), job.getStartMillis(), ProgressSampler.WINDOW_SAMPLES);
+            mSampler.sample(job.getStartMillis(), job.getResumedProcessed());
+            mProgressAccessToList.setMax(progressMax);
+            mProgressAccessToList.setVisibility(View.VISIBLE);
+            setButtonInput(false);
+        }
+
+        BulkActionCounters counters = job.getCounters();
+        mSampler.sample(System.currentTimeMillis(), counters.getProcessed());
+        mProgressAccessToList.setProgress((int) (mSampler.getProcessed() * progressMax / job.getNumbersCount()));
+
+        if (job.isFinished()) {
+            mService.clearJob(job);
+            mSampledJob = null;
+            showDialogOk("Result", job.getResultMessage());
+            mProgressAccessToList.setProgress(0);
+            mProgressAccessToList.setVisibility(View.GONE);
+            setButtonInput(true);
+        } else if (mFlagShowStatus) {
+            String formattedItem = String.format("Numbers total: %d, processed: %d, errors: %d.\nElapsed time: %s\nSpeed: %.1f numbers/s\nEstimated time: %s", mSampler.getTotal(), mSampler.getProcessed(), counters.getErrors(), BulkJob.formatSecondsToTime(mSampler.getElapsedMillis()), mSampler.getSpeed(), (mSampler.getEstimatedMillis() < 0) ? "unknown" : BulkJob.formatSecondsToTime(mSampler.getEstimatedMillis()));
+            if (job.getHandle().isPaused()) {
+                formattedItem += "\nPaused.";
             }
-        }).start();
+            showDialogOkCancel("Progress", formattedItem, job.getHandle());
+            mFlagShowStatus = false;
+        }
     }
 
     /**
@@ -350,107 +528,37 @@ public class MainActivity extends AppCompatActivity
     }
 
     /**
-     * Show dialog with Continue and Stop buttons
+     * Show dialog with Continue, Pause or Resume and Stop buttons
      *
      * @param title -  dialog title
      * @param message - dialog message
+     * @param handle - handle of running job
      */
-    private void showDialogOkCancel(String title, String message) {
+    private void showDialogOkCancel(String title, String message, BulkJobHandle handle) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle(title);
         builder.setMessage(message);
         builder.setPositiveButton("Continue", (dialog, which) -> {
             dialog.cancel();
         });
+        if (handle.isPaused()) {
+            builder.setNeutralButton("Resume", (dialog, which) -> {
+                handle.resume();
+                dialog.cancel();
+            });
+        } else {
+            builder.setNeutralButton("Pause", (dialog, which) -> {
+                handle.pause();
+                dialog.cancel();
+            });
+        }
         builder.setNegativeButton("Stop", (dialog, which) -> {
-            mFlagStop = true;
+            handle.cancel();
             dialog.cancel();
         });
         builder.show();
     }
 
-    /**
-     * Validate input pattern, count placeholders and select number prefix from pattern
-     *
-     * @param inputPattern - pattern
-     * @param inputPlaceHolder - placeholder
-     * @return - Pair of count of placeholders and number prefix
-     * @throws IllegalArgumentException - unsupported format of pattern or placeholder or placeholders count
-     */
-    private Pair<Integer, String> doParsePattern(@NonNull String inputPattern, @NonNull String inputPlaceHolder)  throws IllegalArgumentException {
-        int placeholdersCount;
-
-        String pattern = inputPattern.trim();
-        String placeHolder = inputPlaceHolder.trim();
-
-        if (pattern.isEmpty()) {
-            throw new IllegalArgumentException("Argument pattern is empty");
-        }
-        if (placeHolder.isEmpty()) {
-            throw new IllegalArgumentException("Argument placeholder is empty");
-        }
-        if (placeHolder.length() > 1) {
-            throw new IllegalArgumentException("Argument placeholder too long");
-        }
-        if (!pattern.matches("[0-9\\-+]+" + "\\" + placeHolder + "*")) {
-            throw new IllegalArgumentException("Unsupported pattern format: " + pattern);
-        }
-
-        placeholdersCount = findPlaceholdersCount(pattern, placeHolder);
-        if (placeholdersCount > 7) {
-            throw new IllegalArgumentException("Too many placeholders");
-        }
-        if (placeholdersCount == 0) {
-            throw new IllegalArgumentException("Missing placeholders");
-        }
-        String patternPrefix = pattern.replaceAll("\\" + placeHolder, "").replaceAll("-", "");
-        return new Pair<Integer, String>(placeholdersCount, patternPrefix);
-    }
-
-    /**
-     * Count placeholders in pattern
-     *
-     * @param inputPattern - pattern
-     * @param placeHolder - placeholder
-     * @return count of placeholders
-     */
-    private int findPlaceholdersCount(String inputPattern, String placeHolder) {
-        int lastIndex = 0;
-        int count = 0;
-
-        while (lastIndex != -1) {
-            lastIndex = inputPattern.indexOf(placeHolder, lastIndex);
-            if (lastIndex != -1) {
-                count++;
-                lastIndex += placeHolder.length();
-            }
-        }
-        return count;
-    }
-
-    /**
-     * Format string with text presentation of time interval in milliseconds
-     *
-     * @param millis - time interval in milliseconds
-     * @return string with text
-     */
-    private String formatSecondsToTime(long millis) {
-        long mil = millis % 1000;
-        long sec = millis / 1000;
-        long seconds = sec % 60;
-        long minutes = sec / 60;
-        if (minutes >= 60) {
-            long hours = minutes / 60;
-            minutes %= 60;
-            if( hours >= 24) {
-                long days = hours / 24;
-                return String.format("%d days %02dh:%02dm:%02ds", days,hours%24, minutes, seconds);
-            }
-            return String.format("%02dh:%02dm:%02ds", hours, minutes, seconds);
-        }
-        return String.format("%02dm:%02ds", minutes, seconds);
-    }
-
     /**
      * Enable or disable buttons
      *
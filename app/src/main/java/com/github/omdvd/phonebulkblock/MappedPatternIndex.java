@@ -0,0 +1,118 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Pattern index stored in binary file and mapped into memory.
+ * Lookups read ranges straight from mapped buffer, nothing is deserialized to heap on open.
+ *
+ * File format, big-endian:
+ * int magic, int version, int count of ranges, int reserved,
+ * long[count] first keys of ranges, long[count] last keys of ranges.
+ */
+public class MappedPatternIndex implements NumberMatcher {
+
+    public static final int MAGIC = 0x50424249; // "PBBI"
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+    private final int mEndsOffset;
+
+    private MappedPatternIndex(ByteBuffer buffer, int count) {
+        mBuffer = buffer;
+        mCount = count;
+        mEndsOffset = HEADER_SIZE + count * 8;
+    }
+
+    /**
+     * Map index file into memory
+     *
+     * @param file - index file
+     * @return index
+     * @throws IOException - file is missing, unreadable, of other version or truncated
+     */
+    public static MappedPatternIndex open(@NonNull File file) throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a pattern index: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pattern index version " + buffer.getInt(4) + ": " + file);
+        }
+        int count = buffer.getInt(8);
+        if (count < 0 || buffer.capacity() != HEADER_SIZE + (long) count * 16) {
+            throw new IOException("Pattern index is truncated: " + file);
+        }
+        return new MappedPatternIndex(buffer, count);
+    }
+
+    /**
+     * Write index to file, file is replaced atomically
+     *
+     * @param index - index
+     * @param file - index file
+     * @throws IOException - write failed
+     */
+    public static void write(@NonNull PatternIndex index, @NonNull File file) throws IOException {
+        int count = index.getRangesCount();
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tmpFile);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 65536))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(count);
+            output.writeInt(0);
+            for (int i = 0; i < count; i++) {
+                output.writeLong(index.getStart(i));
+            }
+            for (int i = 0; i < count; i++) {
+                output.writeLong(index.getEnd(i));
+            }
+            output.flush();
+            stream.getFD().sync();
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("Can not rename " + tmpFile + " to " + file);
+        }
+    }
+
+    public int getRangesCount() {
+        return mCount;
+    }
+
+    @Override
+    public boolean matches(@NonNull CharSequence number) {
+        long key = PatternIndex.toKey(number);
+        if (key == PatternIndex.NO_KEY) {
+            return false;
+        }
+        // Find last range starting at or before key
+        int low = 0;
+        int high = mCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (mBuffer.getLong(HEADER_SIZE + middle * 8) <= key) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found >= 0 && key <= mBuffer.getLong(mEndsOffset + found * 8);
+    }
+}
@@ -0,0 +1,248 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalize phone numbers of one country to E.164 form "+digits" without network and number database.
+ * Number with '+' is already international, number with international call prefix gets '+' instead of prefix,
+ * number with trunk prefix gets country code instead of trunk prefix, national number gets country code.
+ * E.g. for country code 7, trunk prefix 8 and national numbers of 10 digits "+7 495 123-45-67",
+ * "84951234567", "74951234567" and "4951234567" are all "+74951234567".
+ * Numbers not matching any rule, e.g. short service numbers, are kept as they are.
+ * Every rule replaces leading digits of number of given length, so whole range of numbers sharing
+ * these leading digits is normalized at once without parsing every number.
+ */
+public class NumberCanonicalizer {
+
+    public static final String DEFAULT_INTERNATIONAL_PREFIX = "00";
+    public static final String SETTINGS_SEPARATOR = ",";
+
+    private final String mCountryCode;
+    private final String mTrunkPrefix;
+    private final String mInternationalPrefix;
+    private final int mNationalLength;
+
+    /**
+     * Leading digits of number to replace
+     */
+    private static class Rule {
+        final int mStrip;
+        final String mReplacement;
+
+        Rule(int strip, String replacement) {
+            mStrip = strip;
+            mReplacement = replacement;
+        }
+    }
+
+    /**
+     * @param countryCode - country calling code, e.g. "7"
+     * @param trunkPrefix - trunk prefix of national numbers, e.g. "8", empty if country has none
+     * @param nationalLength - count of digits of national number without trunk prefix, 0 if unknown
+     * @throws IllegalArgumentException - wrong country code, trunk prefix or length
+     */
+    public NumberCanonicalizer(@NonNull String countryCode, @NonNull String trunkPrefix, int nationalLength) throws IllegalArgumentException {
+        this(countryCode, trunkPrefix, DEFAULT_INTERNATIONAL_PREFIX, nationalLength);
+    }
+
+    /**
+     * @param countryCode - country calling code, e.g. "7"
+     * @param trunkPrefix - trunk prefix of national numbers, e.g. "8", empty if country has none
+     * @param internationalPrefix - prefix of international calls, e.g. "00", empty if not used
+     * @param nationalLength - count of digits of national number without trunk prefix, 0 if unknown
+     * @throws IllegalArgumentException - wrong country code, prefixes or length
+     */
+    public NumberCanonicalizer(@NonNull String countryCode, @NonNull String trunkPrefix, @NonNull String internationalPrefix, int nationalLength) throws IllegalArgumentException {
+        if (!countryCode.matches("[1-9][0-9]{0,2}")) {
+            throw new IllegalArgumentException("Wrong country code: " + countryCode);
+        }
+        if (!trunkPrefix.matches("[0-9]{0,2}")) {
+            throw new IllegalArgumentException("Wrong trunk prefix: " + trunkPrefix);
+        }
+        if (!internationalPrefix.matches("[0-9]{0,4}")) {
+            throw new IllegalArgumentException("Wrong international prefix: " + internationalPrefix);
+        }
+        if (nationalLength < 0 || countryCode.length() + nationalLength > PatternIndex.MAX_DIGITS) {
+            throw new IllegalArgumentException("Wrong length of national number: " + nationalLength);
+        }
+        mCountryCode = countryCode;
+        mTrunkPrefix = trunkPrefix;
+        mInternationalPrefix = internationalPrefix;
+        mNationalLength = nationalLength;
+    }
+
+    /**
+     * Parse settings written by {@link #toString()}
+     *
+     * @param text - "country code, trunk prefix, length of national number", trunk prefix and length are optional
+     * @return canonicalizer or null for empty text
+     * @throws IllegalArgumentException - unsupported format of settings
+     */
+    @Nullable
+    public static NumberCanonicalizer parse(@NonNull String text) throws IllegalArgumentException {
+        if (text.trim().isEmpty()) {
+            return null;
+        }
+        String[] items = text.split(SETTINGS_SEPARATOR, -1);
+        if (items.length > 3) {
+            throw new IllegalArgumentException("Unsupported country settings: " + text);
+        }
+        String countryCode = items[0].trim();
+        if (countryCode.startsWith("+")) {
+            countryCode = countryCode.substring(1);
+        }
+        String trunkPrefix = (items.length > 1) ? items[1].trim() : "";
+        int nationalLength;
+        try {
+            nationalLength = (items.length > 2 && !items[2].trim().isEmpty()) ? Integer.parseInt(items[2].trim()) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong length of national number: " + items[2].trim());
+        }
+        return new NumberCanonicalizer(countryCode, trunkPrefix, nationalLength);
+    }
+
+    public String getCountryCode() {
+        return mCountryCode;
+    }
+
+    public String getTrunkPrefix() {
+        return mTrunkPrefix;
+    }
+
+    public int getNationalLength() {
+        return mNationalLength;
+    }
+
+    /**
+     * Normalize single number
+     *
+     * @param number - phone number with optional '+' and separators
+     * @return number in E.164 form, number itself if it has other chars or does not match any rule
+     */
+    @NonNull
+    public String canonicalize(@NonNull CharSequence number) {
+        StringBuilder digits = new StringBuilder(number.length());
+        boolean plus = false;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '+' && digits.length() == 0 && !plus) {
+                plus = true;
+            } else if (c != '-' && c != ' ' && c != '(' && c != ')' && c != '.') {
+                return number.toString();
+            }
+        }
+        Rule rule = findRule(plus, digits);
+        if (rule == null) {
+            return number.toString();
+        }
+        return "+" + rule.mReplacement + digits.substring(rule.mStrip);
+    }
+
+    /**
+     * Normalize all numbers of range, numbers of range must match the same rule
+     *
+     * @param range - range of numbers
+     * @return range of E.164 numbers with '+', range itself if its numbers do not match any rule or match different rules
+     */
+    @NonNull
+    public NumberRange canonicalize(@NonNull NumberRange range) {
+        String first = digitsOf(range.getDigits(), range.getFirst());
+        String last = digitsOf(range.getDigits(), range.getLast());
+        Rule rule = findRule(range.hasPlus(), first);
+        Rule lastRule = findRule(range.hasPlus(), last);
+        if (rule == null || lastRule == null || rule.mStrip != lastRule.mStrip || !rule.mReplacement.equals(lastRule.mReplacement)
+                || !first.regionMatches(0, last, 0, rule.mStrip)) {
+            return range;
+        }
+        int digits = rule.mReplacement.length() + range.getDigits() - rule.mStrip;
+        if (digits > PatternIndex.MAX_DIGITS) {
+            return range;
+        }
+        long tailSize = NumberCursor.pow10(range.getDigits() - rule.mStrip);
+        long head = rule.mReplacement.isEmpty() ? 0 : Long.parseLong(rule.mReplacement) * tailSize;
+        return new NumberRange(true, digits, head + range.getFirst() % tailSize, head + range.getLast() % tailSize);
+    }
+
+    /**
+     * @param ranges - ranges of numbers
+     * @return normalized ranges in the same order
+     */
+    @NonNull
+    public List<NumberRange> canonicalize(@NonNull List<NumberRange> ranges) {
+        List<NumberRange> canonical = new ArrayList<>(ranges.size());
+        for (NumberRange range : ranges) {
+            canonical.add(canonicalize(range));
+        }
+        return canonical;
+    }
+
+    /**
+     * Settings text, can be parsed back by {@link #parse(String)}
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return mCountryCode + SETTINGS_SEPARATOR + mTrunkPrefix + SETTINGS_SEPARATOR + mNationalLength;
+    }
+
+    /**
+     * @param plus - number starts with '+'
+     * @param digits - digits of number
+     * @return rule for number or null if number is kept as it is
+     */
+    @Nullable
+    private Rule findRule(boolean plus, CharSequence digits) {
+        int length = digits.length();
+        if (length == 0) {
+            return null;
+        }
+        if (plus) {
+            return new Rule(0, "");
+        }
+        if (!mInternationalPrefix.isEmpty() && startsWith(digits, mInternationalPrefix) && length > mInternationalPrefix.length() + mCountryCode.length()) {
+            return new Rule(mInternationalPrefix.length(), "");
+        }
+        if (mNationalLength == 0) {
+            // Without length only trunk prefix tells national number apart
+            return (!mTrunkPrefix.isEmpty() && startsWith(digits, mTrunkPrefix) && length > mTrunkPrefix.length())
+                    ? new Rule(mTrunkPrefix.length(), mCountryCode) : null;
+        }
+        if (!mTrunkPrefix.isEmpty() && length == mTrunkPrefix.length() + mNationalLength && startsWith(digits, mTrunkPrefix)) {
+            return new Rule(mTrunkPrefix.length(), mCountryCode);
+        }
+        if (length == mCountryCode.length() + mNationalLength && startsWith(digits, mCountryCode)) {
+            return new Rule(0, "");
+        }
+        if (length == mNationalLength) {
+            return new Rule(0, mCountryCode);
+        }
+        return null;
+    }
+
+    private static boolean startsWith(CharSequence digits, String prefix) {
+        if (digits.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digits.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String digitsOf(int digits, long value) {
+        char[] chars = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+}
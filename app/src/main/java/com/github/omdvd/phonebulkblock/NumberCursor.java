@@ -0,0 +1,129 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over range of numbers with common prefix and fixed count of suffix digits.
+ * Current number is kept in reusable char buffer and incremented in place, so iteration does not allocate.
+ * Returned CharSequence is the cursor itself and is valid until next call of next().
+ */
+public class NumberCursor implements Iterator<CharSequence>, CharSequence {
+
+    private final char[] mBuffer;
+    private final int mDigitsStart;
+    private final long mEndIndex;
+    private long mIndex;
+    private boolean mStarted;
+
+    /**
+     * @param prefix - number prefix
+     * @param digitsCount - count of generated suffix digits
+     * @param fromIndex - first suffix value, inclusive
+     * @param toIndex - last suffix value, exclusive
+     * @throws IllegalArgumentException - range does not fit into suffix digits
+     */
+    public NumberCursor(@NonNull String prefix, int digitsCount, long fromIndex, long toIndex) throws IllegalArgumentException {
+        if (digitsCount < 1 || digitsCount > 18) {
+            throw new IllegalArgumentException("Unsupported count of digits: " + digitsCount);
+        }
+        if (fromIndex < 0 || toIndex < fromIndex || toIndex > pow10(digitsCount)) {
+            throw new IllegalArgumentException("Range [" + fromIndex + ", " + toIndex + ") out of " + digitsCount + " digits");
+        }
+        mBuffer = new char[prefix.length() + digitsCount];
+        prefix.getChars(0, prefix.length(), mBuffer, 0);
+        mDigitsStart = prefix.length();
+        mEndIndex = toIndex;
+        mIndex = fromIndex;
+        mStarted = false;
+        setDigits(fromIndex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return (mStarted ? mIndex + 1 : mIndex) < mEndIndex;
+    }
+
+    /**
+     * Move to next number
+     *
+     * @return this cursor pointing to next number
+     * @throws NoSuchElementException - range is over
+     */
+    @Override
+    public CharSequence next() throws NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (mStarted) {
+            mIndex++;
+            increment();
+        } else {
+            mStarted = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return suffix value of current number
+     */
+    public long getIndex() {
+        return mIndex;
+    }
+
+    @Override
+    public int length() {
+        return mBuffer.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return mBuffer[index];
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(mBuffer, start, end - start);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return new String(mBuffer);
+    }
+
+    /**
+     * Increment suffix digits in place, odometer-style
+     */
+    private void increment() {
+        for (int i = mBuffer.length - 1; i >= mDigitsStart; i--) {
+            if (mBuffer[i] != '9') {
+                mBuffer[i]++;
+                return;
+            }
+            mBuffer[i] = '0';
+        }
+    }
+
+    private void setDigits(long value) {
+        for (int i = mBuffer.length - 1; i >= mDigitsStart; i--) {
+            mBuffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    /**
+     * @param exponent - power of ten, 0..18
+     * @return 10 in given power
+     */
+    public static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Set of phone numbers used to screen calls
+ */
+public interface NumberMatcher {
+
+    /**
+     * Check if number belongs to set
+     *
+     * @param number - phone number
+     * @return true if number matches
+     */
+    boolean matches(@NonNull CharSequence number);
+}
@@ -0,0 +1,190 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Contiguous range of phone numbers with the same count of digits, optionally with leading '+'.
+ * Numbers differing only by leading '+' are treated as the same number.
+ */
+public class NumberRange implements Comparable<NumberRange> {
+
+    public static final String RANGE_SEPARATOR = "..";
+
+    private final boolean mPlus;
+    private final int mDigits;
+    private final long mFirst;
+    private final long mLast;
+
+    /**
+     * @param plus - numbers start with '+'
+     * @param digits - count of digits in every number
+     * @param first - value of first number, inclusive
+     * @param last - value of last number, inclusive
+     * @throws IllegalArgumentException - values do not fit into count of digits
+     */
+    public NumberRange(boolean plus, int digits, long first, long last) throws IllegalArgumentException {
+        if (digits < 1 || digits > PatternIndex.MAX_DIGITS) {
+            throw new IllegalArgumentException("Unsupported count of digits: " + digits);
+        }
+        if (first < 0 || last < first || last >= NumberCursor.pow10(digits)) {
+            throw new IllegalArgumentException("Wrong range of " + digits + " digits: " + first + RANGE_SEPARATOR + last);
+        }
+        mPlus = plus;
+        mDigits = digits;
+        mFirst = first;
+        mLast = last;
+    }
+
+    /**
+     * Range of all numbers of pattern
+     *
+     * @param expander - pattern
+     * @return range
+     */
+    public static NumberRange of(@NonNull PatternExpander expander) {
+        String prefix = expander.getPrefix();
+        int digits = expander.getPlaceholdersCount();
+        long prefixValue = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                prefixValue = prefixValue * 10 + (c - '0');
+            }
+        }
+        if (digits > PatternIndex.MAX_DIGITS) {
+            throw new IllegalArgumentException("Pattern is too long: " + expander.getPattern());
+        }
+        long first = prefixValue * expander.getNumbersCount();
+        return new NumberRange(prefix.startsWith("+"), digits, first, first + expander.getNumbersCount() - 1);
+    }
+
+    /**
+     * Parse explicit range of numbers "first..last", both numbers must have the same count of digits.
+     * Single number is a range of one number.
+     *
+     * @param text - range
+     * @return range
+     * @throws IllegalArgumentException - unsupported format of range
+     */
+    public static NumberRange parse(@NonNull String text) throws IllegalArgumentException {
+        String range = text.trim();
+        int separator = range.indexOf(RANGE_SEPARATOR);
+        String firstNumber = (separator < 0) ? range : range.substring(0, separator).trim();
+        String lastNumber = (separator < 0) ? range : range.substring(separator + RANGE_SEPARATOR.length()).trim();
+        if (!firstNumber.matches("\\+?[0-9\\-]+") || !lastNumber.matches("\\+?[0-9\\-]+")) {
+            throw new IllegalArgumentException("Unsupported range format: " + range);
+        }
+        String firstDigits = firstNumber.replaceAll("[^0-9]", "");
+        String lastDigits = lastNumber.replaceAll("[^0-9]", "");
+        if (firstDigits.length() != lastDigits.length()) {
+            throw new IllegalArgumentException("Range bounds have different count of digits: " + range);
+        }
+        if (firstDigits.isEmpty() || firstDigits.length() > PatternIndex.MAX_DIGITS) {
+            throw new IllegalArgumentException("Unsupported count of digits: " + range);
+        }
+        return new NumberRange(firstNumber.startsWith("+"), firstDigits.length(), Long.parseLong(firstDigits), Long.parseLong(lastDigits));
+    }
+
+    public boolean hasPlus() {
+        return mPlus;
+    }
+
+    public int getDigits() {
+        return mDigits;
+    }
+
+    public long getFirst() {
+        return mFirst;
+    }
+
+    public long getLast() {
+        return mLast;
+    }
+
+    /**
+     * @param plus - numbers start with '+'
+     * @return range of the same numbers with or without '+'
+     */
+    public NumberRange withPlus(boolean plus) {
+        return (plus == mPlus) ? this : new NumberRange(plus, mDigits, mFirst, mLast);
+    }
+
+    /**
+     * @return count of numbers in range
+     */
+    public long getSize() {
+        return mLast - mFirst + 1;
+    }
+
+    /**
+     * Check if number with given digits belongs to range
+     *
+     * @param digits - count of digits
+     * @param value - value of digits
+     * @return true if number belongs to range
+     */
+    public boolean contains(int digits, long value) {
+        return digits == mDigits && value >= mFirst && value <= mLast;
+    }
+
+    /**
+     * Lazy iterator over part of range
+     *
+     * @param fromOffset - offset of first number in range, inclusive
+     * @param toOffset - offset of last number in range, exclusive
+     * @return cursor over numbers, cursor index is value of number
+     */
+    public NumberCursor cursor(long fromOffset, long toOffset) {
+        return new NumberCursor(mPlus ? "+" : "", mDigits, mFirst + fromOffset, mFirst + toOffset);
+    }
+
+    /**
+     * Build single number of range
+     *
+     * @param offset - offset of number in range
+     * @return phone number
+     */
+    public String getNumber(long offset) {
+        NumberCursor cursor = cursor(offset, offset + 1);
+        cursor.next();
+        return cursor.toString();
+    }
+
+    /**
+     * Order by count of digits, then by first number
+     */
+    @Override
+    public int compareTo(@NonNull NumberRange other) {
+        if (mDigits != other.mDigits) {
+            return Integer.compare(mDigits, other.mDigits);
+        }
+        return Long.compare(mFirst, other.mFirst);
+    }
+
+    /**
+     * Text of range: pattern with placeholders if range covers whole pattern with at least one digit
+     * and at most {@link PatternExpander#MAX_PLACEHOLDERS} placeholders, otherwise "first..last",
+     * so text can always be parsed back
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        int placeholders = 0;
+        long size = 1;
+        int maxPlaceholders = Math.min(mDigits - 1, PatternExpander.MAX_PLACEHOLDERS);
+        while (placeholders < maxPlaceholders && mFirst % (size * 10) == 0 && getSize() % (size * 10) == 0 && getSize() >= size * 10) {
+            placeholders++;
+            size *= 10;
+        }
+        if (size == getSize() && placeholders > 0) {
+            String number = getNumber(0);
+            StringBuilder pattern = new StringBuilder(number.substring(0, number.length() - placeholders));
+            for (int i = 0; i < placeholders; i++) {
+                pattern.append(PatternExpander.DEFAULT_PLACEHOLDER);
+            }
+            return pattern.toString();
+        }
+        return (getSize() == 1) ? getNumber(0) : getNumber(0) + RANGE_SEPARATOR + getNumber(getSize() - 1);
+    }
+}
@@ -0,0 +1,441 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of phone numbers kept as sorted disjoint ranges of number keys, see {@link PatternIndex#toKey(int, long)}.
+ * Memory is proportional to count of ranges, not count of numbers. Numbers are compared by digits only,
+ * '+' and separators are ignored, ranges returned by set are without '+'.
+ * Ranges of numbers with different count of digits are never merged.
+ */
+public class NumberRangeSet implements Iterable<NumberRange> {
+
+    public static final NumberRangeSet EMPTY = new NumberRangeSet(new long[0], new long[0], 0);
+
+    // Arrays have exactly count elements
+    private final long[] mStarts;
+    private final long[] mEnds;
+    private final int mCount;
+    private final long mSize;
+
+    private NumberRangeSet(long[] starts, long[] ends, int count) {
+        mStarts = starts;
+        mEnds = ends;
+        mCount = count;
+        long size = 0;
+        for (int i = 0; i < count; i++) {
+            size += ends[i] - starts[i] + 1;
+        }
+        mSize = size;
+    }
+
+    /**
+     * @param ranges - ranges in any order, may overlap
+     * @return set of all numbers of ranges
+     */
+    public static NumberRangeSet of(@NonNull Collection<NumberRange> ranges) {
+        Builder builder = new Builder();
+        for (NumberRange range : ranges) {
+            builder.add(range);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param range - range
+     * @return set of numbers of range
+     */
+    public static NumberRangeSet of(@NonNull NumberRange range) {
+        return new NumberRangeSet(new long[] {startKey(range)}, new long[] {endKey(range)}, 1);
+    }
+
+    /**
+     * Parse text written by {@link #toString()}
+     *
+     * @param text - comma separated patterns and ranges, empty text for empty set
+     * @return set
+     * @throws IllegalArgumentException - unsupported format of some item
+     */
+    public static NumberRangeSet parse(@NonNull String text) throws IllegalArgumentException {
+        if (text.trim().isEmpty()) {
+            return EMPTY;
+        }
+        return of(JobPlanner.parse(text));
+    }
+
+    /**
+     * @return count of numbers in set
+     */
+    public long getSize() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    /**
+     * @return count of disjoint ranges in set
+     */
+    public int getRangesCount() {
+        return mCount;
+    }
+
+    /**
+     * @param index - index of range
+     * @return range of numbers without '+'
+     */
+    public NumberRange getRange(int index) {
+        int digits = PatternIndex.keyDigits(mStarts[index]);
+        long offset = mStarts[index] - PatternIndex.keyValue(mStarts[index]);
+        return new NumberRange(false, digits, mStarts[index] - offset, mEnds[index] - offset);
+    }
+
+    long getStartKey(int index) {
+        return mStarts[index];
+    }
+
+    long getEndKey(int index) {
+        return mEnds[index];
+    }
+
+    /**
+     * @param key - key of number
+     * @return true if number is in set
+     */
+    public boolean contains(long key) {
+        int index = findRange(key);
+        return index >= 0 && key <= mEnds[index];
+    }
+
+    /**
+     * @param number - phone number
+     * @return true if number is in set
+     */
+    public boolean contains(@NonNull CharSequence number) {
+        long key = PatternIndex.toKey(number);
+        return key != PatternIndex.NO_KEY && contains(key);
+    }
+
+    /**
+     * Numbers of set between two keys, found by binary search without scanning whole set
+     *
+     * @param fromKey - first key, inclusive
+     * @param toKey - last key, inclusive
+     * @return set of numbers in bounds
+     */
+    public NumberRangeSet subSet(long fromKey, long toKey) {
+        int first = Math.max(0, findRange(fromKey));
+        Builder builder = new Builder();
+        for (int i = first; i < mCount && mStarts[i] <= toKey; i++) {
+            long start = Math.max(mStarts[i], fromKey);
+            long end = Math.min(mEnds[i], toKey);
+            if (start <= end) {
+                builder.add(start, end);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param range - range
+     * @return numbers of set which are in range
+     */
+    public NumberRangeSet subSet(@NonNull NumberRange range) {
+        return subSet(startKey(range), endKey(range));
+    }
+
+    /**
+     * @param other - set
+     * @return numbers in any of sets
+     */
+    public NumberRangeSet union(@NonNull NumberRangeSet other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < mCount || j < other.mCount) {
+            if (j >= other.mCount || (i < mCount && mStarts[i] <= other.mStarts[j])) {
+                builder.add(mStarts[i], mEnds[i]);
+                i++;
+            } else {
+                builder.add(other.mStarts[j], other.mEnds[j]);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param other - set
+     * @return numbers of this set which are not in other set
+     */
+    public NumberRangeSet difference(@NonNull NumberRangeSet other) {
+        Builder builder = new Builder();
+        int j = 0;
+        for (int i = 0; i < mCount; i++) {
+            long start = mStarts[i];
+            long end = mEnds[i];
+            while (j < other.mCount && other.mEnds[j] < start) {
+                j++;
+            }
+            int k = j;
+            while (start <= end && k < other.mCount && other.mStarts[k] <= end) {
+                if (other.mStarts[k] > start) {
+                    builder.add(start, other.mStarts[k] - 1);
+                }
+                start = Math.max(start, other.mEnds[k] + 1);
+                k++;
+            }
+            if (start <= end) {
+                builder.add(start, end);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param other - set
+     * @return numbers which are in both sets
+     */
+    public NumberRangeSet intersection(@NonNull NumberRangeSet other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < mCount && j < other.mCount) {
+            long start = Math.max(mStarts[i], other.mStarts[j]);
+            long end = Math.min(mEnds[i], other.mEnds[j]);
+            if (start <= end) {
+                builder.add(start, end);
+            }
+            if (mEnds[i] < other.mEnds[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Iterate ranges in ascending order of keys
+     */
+    @NonNull
+    @Override
+    public Iterator<NumberRange> iterator() {
+        return new Iterator<NumberRange>() {
+            private int mIndex;
+
+            @Override
+            public boolean hasNext() {
+                return mIndex < mCount;
+            }
+
+            @Override
+            public NumberRange next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getRange(mIndex++);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof NumberRangeSet)) {
+            return false;
+        }
+        NumberRangeSet set = (NumberRangeSet) other;
+        return mCount == set.mCount
+                && Arrays.equals(mStarts, set.mStarts)
+                && Arrays.equals(mEnds, set.mEnds);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = mCount;
+        for (int i = 0; i < mCount; i++) {
+            hash = hash * 31 + Long.hashCode(mStarts[i]);
+            hash = hash * 31 + Long.hashCode(mEnds[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Text of set, can be parsed back by {@link #parse(String)}: ranges too large for pattern
+     * are written by their bounds, see {@link NumberRange#toString()}
+     *
+     * @return comma separated ranges, empty for empty set
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (NumberRange range : this) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(range);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param key - key of number
+     * @return index of last range starting at or before key, -1 if there is no such range
+     */
+    private int findRange(long key) {
+        int index = Arrays.binarySearch(mStarts, 0, mCount, key);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    static long startKey(NumberRange range) {
+        return PatternIndex.toKey(range.getDigits(), range.getFirst());
+    }
+
+    static long endKey(NumberRange range) {
+        return PatternIndex.toKey(range.getDigits(), range.getLast());
+    }
+
+    /**
+     * Collect numbers and ranges into set. Ranges added in ascending order are merged at once,
+     * ranges out of order are merged when storage is full, so memory stays proportional to count of ranges.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] mStarts = new long[INITIAL_CAPACITY];
+        private long[] mEnds = new long[INITIAL_CAPACITY];
+        private int mCount;
+        private boolean mSorted = true;
+
+        /**
+         * @param key - key of number
+         * @return this builder
+         */
+        public Builder add(long key) {
+            return add(key, key);
+        }
+
+        /**
+         * @param range - range of numbers
+         * @return this builder
+         */
+        public Builder add(@NonNull NumberRange range) {
+            return add(startKey(range), endKey(range));
+        }
+
+        /**
+         * @param set - set of numbers
+         * @return this builder
+         */
+        public Builder addAll(@NonNull NumberRangeSet set) {
+            for (int i = 0; i < set.mCount; i++) {
+                add(set.mStarts[i], set.mEnds[i]);
+            }
+            return this;
+        }
+
+        /**
+         * @param startKey - key of first number, inclusive
+         * @param endKey - key of last number, inclusive, of the same count of digits as first number
+         * @return this builder
+         */
+        Builder add(long startKey, long endKey) {
+            if (mCount == mStarts.length) {
+                if (!mSorted) {
+                    normalize();
+                }
+                // Keep at least half of storage free, so merges of unsorted input are rare
+                if (mCount * 2 > mStarts.length) {
+                    mStarts = Arrays.copyOf(mStarts, mStarts.length * 2);
+                    mEnds = Arrays.copyOf(mEnds, mEnds.length * 2);
+                }
+            }
+            if (mCount > 0 && mSorted) {
+                long lastStart = mStarts[mCount - 1];
+                long lastEnd = mEnds[mCount - 1];
+                if (startKey >= lastStart && canMerge(lastEnd, startKey)) {
+                    mEnds[mCount - 1] = Math.max(lastEnd, endKey);
+                    return this;
+                }
+                if (startKey < lastStart) {
+                    mSorted = false;
+                }
+            }
+            mStarts[mCount] = startKey;
+            mEnds[mCount] = endKey;
+            mCount++;
+            return this;
+        }
+
+        /**
+         * @return set of all added numbers, builder can be used further
+         */
+        public NumberRangeSet build() {
+            if (!mSorted) {
+                normalize();
+            }
+            return new NumberRangeSet(Arrays.copyOf(mStarts, mCount), Arrays.copyOf(mEnds, mCount), mCount);
+        }
+
+        /**
+         * Merge ranges in any order. Union of ranges depends only on their bounds,
+         * so starts and ends are sorted separately without allocation and swept together.
+         */
+        private void normalize() {
+            Arrays.sort(mStarts, 0, mCount);
+            Arrays.sort(mEnds, 0, mCount);
+            int count = 0;
+            int active = 0;
+            long start = 0;
+            int i = 0;
+            int j = 0;
+            while (j < mCount) {
+                if (i < mCount && (mStarts[i] <= mEnds[j] || (active == 0 && count > 0 && canMerge(mEnds[count - 1], mStarts[i])))) {
+                    if (active == 0) {
+                        if (count > 0 && canMerge(mEnds[count - 1], mStarts[i])) {
+                            // Continue previous range, it is adjacent
+                            count--;
+                            start = mStarts[count];
+                        } else {
+                            start = mStarts[i];
+                        }
+                    }
+                    active++;
+                    i++;
+                } else {
+                    active--;
+                    if (active == 0) {
+                        // Sweep only moves forward, so written range never overwrites unread bounds
+                        long end = mEnds[j];
+                        mStarts[count] = start;
+                        mEnds[count] = end;
+                        count++;
+                    }
+                    j++;
+                }
+            }
+            mCount = count;
+            mSorted = true;
+        }
+
+        /**
+         * @param end - last key of range
+         * @param start - first key of next range
+         * @return true if next range overlaps or continues range with the same count of digits
+         */
+        private static boolean canMerge(long end, long start) {
+            return start <= end || (start == end + 1 && PatternIndex.keyDigits(start) == PatternIndex.keyDigits(end));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+
+/**
+ * Phone number pattern with right-side placeholders, expands to all numbers matching pattern
+ */
+public class PatternExpander implements Iterable<CharSequence> {
+
+    public static final String DEFAULT_PLACEHOLDER = "*";
+    public static final int MAX_PLACEHOLDERS = 7;
+
+    private final String mPattern;
+    private final String mPrefix;
+    private final int mPlaceholdersCount;
+    private final long mNumbersCount;
+
+    /**
+     * Validate input pattern, count placeholders and select number prefix from pattern
+     *
+     * @param inputPattern - pattern
+     * @param inputPlaceHolder - placeholder
+     * @throws IllegalArgumentException - unsupported format of pattern or placeholder or placeholders count
+     */
+    public PatternExpander(@NonNull String inputPattern, @NonNull String inputPlaceHolder) throws IllegalArgumentException {
+        String pattern = inputPattern.trim();
+        String placeHolder = inputPlaceHolder.trim();
+
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Argument pattern is empty");
+        }
+        if (placeHolder.isEmpty()) {
+            throw new IllegalArgumentException("Argument placeholder is empty");
+        }
+        if (placeHolder.length() > 1) {
+            throw new IllegalArgumentException("Argument placeholder too long");
+        }
+        if (!pattern.matches("[0-9\\-+]+" + "\\" + placeHolder + "*")) {
+            throw new IllegalArgumentException("Unsupported pattern format: " + pattern);
+        }
+
+        int placeholdersCount = findPlaceholdersCount(pattern, placeHolder);
+        if (placeholdersCount > MAX_PLACEHOLDERS) {
+            throw new IllegalArgumentException("Too many placeholders");
+        }
+        if (placeholdersCount == 0) {
+            throw new IllegalArgumentException("Missing placeholders");
+        }
+        mPattern = pattern;
+        mPrefix = pattern.replaceAll("\\" + placeHolder, "").replaceAll("-", "");
+        mPlaceholdersCount = placeholdersCount;
+        mNumbersCount = NumberCursor.pow10(placeholdersCount);
+    }
+
+    /**
+     * Count placeholders in pattern
+     *
+     * @param inputPattern - pattern
+     * @param placeHolder - placeholder
+     * @return count of placeholders
+     */
+    public static int findPlaceholdersCount(@NonNull String inputPattern, @NonNull String placeHolder) {
+        int lastIndex = 0;
+        int count = 0;
+
+        while (lastIndex != -1) {
+            lastIndex = inputPattern.indexOf(placeHolder, lastIndex);
+            if (lastIndex != -1) {
+                count++;
+                lastIndex += placeHolder.length();
+            }
+        }
+        return count;
+    }
+
+    public String getPattern() {
+        return mPattern;
+    }
+
+    public String getPrefix() {
+        return mPrefix;
+    }
+
+    public int getPlaceholdersCount() {
+        return mPlaceholdersCount;
+    }
+
+    public long getNumbersCount() {
+        return mNumbersCount;
+    }
+
+    /**
+     * Lazy iterator over part of pattern numbers
+     *
+     * @param fromIndex - first number index, inclusive
+     * @param toIndex - last number index, exclusive
+     * @return cursor over numbers
+     */
+    public NumberCursor cursor(long fromIndex, long toIndex) {
+        return new NumberCursor(mPrefix, mPlaceholdersCount, fromIndex, toIndex);
+    }
+
+    /**
+     * Lazy iterator over all pattern numbers
+     *
+     * @return cursor over numbers
+     */
+    @NonNull
+    @Override
+    public Iterator<CharSequence> iterator() {
+        return cursor(0, mNumbersCount);
+    }
+
+    /**
+     * Build single number of pattern
+     *
+     * @param index - number index
+     * @return phone number
+     */
+    public String getNumber(long index) {
+        NumberCursor cursor = cursor(index, index + 1);
+        cursor.next();
+        return cursor.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Set of phone number patterns kept as sorted disjoint ranges of number keys, see {@link NumberRangeSet}.
+ * Lookup parses digits of number in place and does binary search, it does not allocate.
+ * Numbers are compared by digits only, '+' and separators are ignored.
+ */
+public class PatternIndex implements NumberMatcher {
+
+    public static final long NO_KEY = -1;
+
+    // Max digits of number which fit into key
+    public static final int MAX_DIGITS = 18;
+
+    private static final long[] DIGITS_OFFSET = new long[MAX_DIGITS + 2];
+
+    static {
+        // Key of number is count of all shorter digit strings plus value of its digits,
+        // so keys of numbers with different count of digits never overlap
+        for (int digits = 1; digits < DIGITS_OFFSET.length; digits++) {
+            DIGITS_OFFSET[digits] = DIGITS_OFFSET[digits - 1] + NumberCursor.pow10(digits - 1);
+        }
+    }
+
+    private final NumberRangeSet mRanges;
+
+    private PatternIndex(NumberRangeSet ranges) {
+        mRanges = ranges;
+    }
+
+    /**
+     * Build index from patterns, overlapping patterns are merged
+     *
+     * @param patterns - patterns
+     * @return index
+     */
+    public static PatternIndex build(@NonNull List<PatternExpander> patterns) {
+        NumberRangeSet.Builder builder = new NumberRangeSet.Builder();
+        for (PatternExpander pattern : patterns) {
+            builder.add(NumberRange.of(pattern));
+        }
+        return new PatternIndex(builder.build());
+    }
+
+    /**
+     * @return count of disjoint ranges in index
+     */
+    public int getRangesCount() {
+        return mRanges.getRangesCount();
+    }
+
+    long getStart(int index) {
+        return mRanges.getStartKey(index);
+    }
+
+    long getEnd(int index) {
+        return mRanges.getEndKey(index);
+    }
+
+    /**
+     * Check if number matches any pattern
+     *
+     * @param number - phone number
+     * @return true if number matches
+     */
+    @Override
+    public boolean matches(@NonNull CharSequence number) {
+        return mRanges.contains(number);
+    }
+
+    /**
+     * Convert number to key, digits are taken in order, other chars are ignored
+     *
+     * @param number - phone number
+     * @return key or NO_KEY if number has no digits or too many digits
+     */
+    public static long toKey(@NonNull CharSequence number) {
+        int digits = 0;
+        long value = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return NO_KEY;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        return (digits == 0) ? NO_KEY : toKey(digits, value);
+    }
+
+    /**
+     * @param digits - count of digits in number
+     * @param value - value of digits
+     * @return key of number
+     */
+    public static long toKey(int digits, long value) {
+        return DIGITS_OFFSET[digits] + value;
+    }
+
+    /**
+     * @param key - key of number
+     * @return count of digits of number
+     */
+    static int keyDigits(long key) {
+        int digits = 1;
+        while (digits < MAX_DIGITS && key >= DIGITS_OFFSET[digits + 1]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * @param key - key of number
+     * @return value of digits of number
+     */
+    static long keyValue(long key) {
+        return key - DIGITS_OFFSET[keyDigits(key)];
+    }
+}
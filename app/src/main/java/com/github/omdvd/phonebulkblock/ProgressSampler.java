@@ -0,0 +1,89 @@
+package com.github.omdvd.phonebulkblock;
+
+/**
+ * Compute speed and estimated time of bulk action from periodic samples of processed counter.
+ * Speed is measured over sliding window of last samples, not over whole run.
+ */
+public class ProgressSampler {
+
+    public static final long TICK_MILLIS = 100;
+    public static final int WINDOW_SAMPLES = 50;
+
+    private final long mTotal;
+    private final long mStartMillis;
+    private final long[] mSampleTimes;
+    private final long[] mSampleCounts;
+    private int mNext, mSize;
+    private long mProcessed, mElapsedMillis, mEstimatedMillis;
+    private float mSpeed;
+
+    /**
+     * @param total - count of numbers in job
+     * @param startMillis - job start time
+     * @param windowSamples - count of samples in sliding window
+     */
+    public ProgressSampler(long total, long startMillis, int windowSamples) {
+        mTotal = total;
+        mStartMillis = startMillis;
+        mSampleTimes = new long[windowSamples + 1];
+        mSampleCounts = new long[windowSamples + 1];
+        mNext = 0;
+        mSize = 0;
+        mEstimatedMillis = -1;
+    }
+
+    /**
+     * Add sample and recompute speed and estimated time
+     *
+     * @param nowMillis - sample time
+     * @param processed - count of processed numbers at sample time
+     */
+    public void sample(long nowMillis, long processed) {
+        mSampleTimes[mNext] = nowMillis;
+        mSampleCounts[mNext] = processed;
+        mNext = (mNext + 1) % mSampleTimes.length;
+        if (mSize < mSampleTimes.length) {
+            mSize++;
+        }
+
+        int oldest = (mSize < mSampleTimes.length) ? 0 : mNext;
+        long windowMillis = nowMillis - mSampleTimes[oldest];
+        long windowCount = processed - mSampleCounts[oldest];
+        if (windowMillis <= 0) {
+            // Single sample, fall back to average from start
+            windowMillis = nowMillis - mStartMillis;
+            windowCount = processed;
+        }
+
+        mProcessed = processed;
+        mElapsedMillis = nowMillis - mStartMillis;
+        mSpeed = (windowMillis > 0) ? (windowCount * 1000f / windowMillis) : 0f;
+        mEstimatedMillis = (mSpeed > 0f) ? (long) ((mTotal - processed) * 1000f / mSpeed) : -1;
+    }
+
+    public long getTotal() {
+        return mTotal;
+    }
+
+    public long getProcessed() {
+        return mProcessed;
+    }
+
+    public long getElapsedMillis() {
+        return mElapsedMillis;
+    }
+
+    /**
+     * @return numbers per second over sliding window
+     */
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+    /**
+     * @return estimated time to finish in milliseconds, -1 if unknown
+     */
+    public long getEstimatedMillis() {
+        return mEstimatedMillis;
+    }
+}
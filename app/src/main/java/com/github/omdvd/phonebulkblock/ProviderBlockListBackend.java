@@ -0,0 +1,87 @@
+package com.github.omdvd.phonebulkblock;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.provider.BlockedNumberContract;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blocklist backend on top of system BlockedNumberContract provider
+ */
+public class ProviderBlockListBackend implements BlockListBackend {
+
+    private static final String SELECTION_NUMBER =
+            BlockedNumberContract.BlockedNumbers.COLUMN_ORIGINAL_NUMBER + " = ? OR "
+            + BlockedNumberContract.BlockedNumbers.COLUMN_E164_NUMBER + " = ?";
+
+    private final Context mContext;
+    private final ContentResolver mContentResolver;
+
+    public ProviderBlockListBackend(@NonNull Context context) {
+        mContext = context.getApplicationContext();
+        mContentResolver = mContext.getContentResolver();
+    }
+
+    @Override
+    public void readAll(@NonNull EntryVisitor visitor) {
+        String[] projection = {
+                BlockedNumberContract.BlockedNumbers.COLUMN_ORIGINAL_NUMBER,
+                BlockedNumberContract.BlockedNumbers.COLUMN_E164_NUMBER
+        };
+        try (Cursor cursor = mContentResolver.query(BlockedNumberContract.BlockedNumbers.CONTENT_URI, projection, null, null,
+                BlockedNumberContract.BlockedNumbers.COLUMN_ORIGINAL_NUMBER + " ASC")) {
+            if (cursor == null) {
+                throw new IllegalStateException("Blocklist provider is not available");
+            }
+            while (cursor.moveToNext()) {
+                String originalNumber = cursor.getString(0);
+                if (originalNumber != null) {
+                    visitor.visit(originalNumber, cursor.getString(1));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isBlocked(@NonNull String number) {
+        return BlockedNumberContract.isBlocked(mContext, number);
+    }
+
+    @Override
+    public int blockBatch(@NonNull List<String> numbers) {
+        ContentValues[] values = new ContentValues[numbers.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues(1);
+            values[i].put(BlockedNumberContract.BlockedNumbers.COLUMN_ORIGINAL_NUMBER, numbers.get(i));
+        }
+        // Provider failure, e.g. too large transaction or dead provider, is returned as 0 rows
+        return mContentResolver.bulkInsert(BlockedNumberContract.BlockedNumbers.CONTENT_URI, values);
+    }
+
+    @Override
+    public int unblockBatch(@NonNull List<String> numbers) throws Exception {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            operations.add(ContentProviderOperation.newDelete(BlockedNumberContract.BlockedNumbers.CONTENT_URI)
+                    .withSelection(SELECTION_NUMBER, new String[] {number, number})
+                    .build());
+        }
+        ContentProviderResult[] results = mContentResolver.applyBatch(BlockedNumberContract.AUTHORITY, operations);
+        // Count rows really deleted, number may match no row, e.g. if blocklist keeps it in other form
+        int count = 0;
+        for (ContentProviderResult result : results) {
+            if (result.count != null) {
+                count += result.count;
+            }
+        }
+        return count;
+    }
+}
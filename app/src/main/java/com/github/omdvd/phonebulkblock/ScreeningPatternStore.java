@@ -0,0 +1,150 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patterns of numbers rejected by CallService, kept as text file with one pattern per line.
+ * Every change of patterns also compiles binary index file which CallService maps into memory.
+ */
+public class ScreeningPatternStore {
+
+    public static final String FILE_NAME = "screening_patterns.txt";
+    public static final String INDEX_FILE_NAME = "screening_patterns.idx";
+
+    private final File mFile;
+    private final File mIndexFile;
+
+    /**
+     * @param directory - directory of pattern and index files
+     */
+    public ScreeningPatternStore(@NonNull File directory) {
+        mFile = new File(directory, FILE_NAME);
+        mIndexFile = new File(directory, INDEX_FILE_NAME);
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    public File getIndexFile() {
+        return mIndexFile;
+    }
+
+    /**
+     * Read stored patterns
+     *
+     * @return list of patterns, empty if there is no file
+     * @throws IOException - read failed
+     */
+    public synchronized List<String> load() throws IOException {
+        List<String> patterns = new ArrayList<>();
+        if (!mFile.exists()) {
+            return patterns;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    patterns.add(line);
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Add pattern if it is not stored yet
+     *
+     * @param pattern - valid pattern
+     * @return true if pattern was added
+     * @throws IOException - read or write failed
+     */
+    public synchronized boolean add(@NonNull String pattern) throws IOException {
+        List<String> patterns = load();
+        if (patterns.contains(pattern)) {
+            return false;
+        }
+        patterns.add(pattern);
+        save(patterns);
+        return true;
+    }
+
+    /**
+     * Remove pattern
+     *
+     * @param pattern - pattern
+     * @return true if pattern was removed
+     * @throws IOException - read or write failed
+     */
+    public synchronized boolean remove(@NonNull String pattern) throws IOException {
+        List<String> patterns = load();
+        if (!patterns.remove(pattern)) {
+            return false;
+        }
+        save(patterns);
+        return true;
+    }
+
+    /**
+     * Map compiled index into memory, compile it first if it is missing or unreadable
+     *
+     * @return index
+     * @throws IOException - read or write failed
+     */
+    public synchronized MappedPatternIndex openIndex() throws IOException {
+        if (mIndexFile.exists()) {
+            try {
+                return MappedPatternIndex.open(mIndexFile);
+            } catch (IOException e) {
+                // Index of old version or broken, compile it again
+            }
+        }
+        MappedPatternIndex.write(buildIndex(), mIndexFile);
+        return MappedPatternIndex.open(mIndexFile);
+    }
+
+    /**
+     * Build lookup index from stored patterns, invalid patterns are skipped
+     *
+     * @return index
+     * @throws IOException - read failed
+     */
+    public synchronized PatternIndex buildIndex() throws IOException {
+        List<PatternExpander> expanders = new ArrayList<>();
+        for (String pattern : load()) {
+            try {
+                expanders.add(new PatternExpander(pattern, PatternExpander.DEFAULT_PLACEHOLDER));
+            } catch (IllegalArgumentException e) {
+                // Skip broken line
+            }
+        }
+        return PatternIndex.build(expanders);
+    }
+
+    private void save(List<String> patterns) throws IOException {
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            for (String pattern : patterns) {
+                writer.write(pattern);
+                writer.write('\n');
+            }
+        }
+        if (!tmpFile.renameTo(mFile)) {
+            throw new IOException("Can not rename " + tmpFile + " to " + mFile);
+        }
+        MappedPatternIndex.write(buildIndex(), mIndexFile);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveBatchControllerTest {
+
+    private static final long TARGET_NANOS = 1000000;
+
+    @Test
+    public void batchSize_growsAdditivelyAndShrinksMultiplicatively() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 200, 4, TARGET_NANOS);
+
+        controller.onBatchSucceeded(100, TARGET_NANOS / 2);
+        assertEquals(110, controller.getBatchSize());
+        controller.onBatchSucceeded(50, TARGET_NANOS / 2);
+        assertEquals("partial batch does not grow", 110, controller.getBatchSize());
+
+        controller.onBatchFailed(110, TARGET_NANOS / 2);
+        assertEquals(55, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+
+        controller.onBatchSucceeded(55, TARGET_NANOS * 2);
+        assertEquals(27, controller.getBatchSize());
+        assertEquals(1, controller.getCountSlow());
+
+        for (int i = 0; i < 10; i++) {
+            controller.onBatchFailed(1, 0);
+        }
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+
+        for (int i = 0; i < 100; i++) {
+            controller.onBatchSucceeded(controller.getBatchSize(), 0);
+        }
+        assertEquals(200, controller.getBatchSize());
+        assertEquals(4, controller.getConcurrency());
+        assertEquals(11.0 / 114, controller.getFailureRate(), 1e-9);
+    }
+
+    @Test
+    public void recoveredBatch_doesNotGrow() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 200, 4, TARGET_NANOS);
+        controller.onBatchFailed(100, TARGET_NANOS / 2);
+
+        for (int i = 0; i < 10; i++) {
+            controller.onBatchRecovered(50, TARGET_NANOS / 2);
+        }
+        assertEquals(50, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+        assertEquals(10, controller.getCountSucceeded());
+
+        controller.onBatchRecovered(50, TARGET_NANOS * 2);
+        assertEquals(25, controller.getBatchSize());
+        assertEquals(1, controller.getCountSlow());
+    }
+
+    @Test
+    public void acquire_limitsConcurrentCalls() throws Exception {
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 10, 100, 4, TARGET_NANOS);
+        controller.onBatchFailed(10, 0);
+        assertEquals(2, controller.getConcurrency());
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int call = 0; call < 20; call++) {
+                    try {
+                        controller.acquire();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    active.decrementAndGet();
+                    controller.release();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("max active " + maxActive.get(), maxActive.get() <= 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongBounds_rejected() {
+        new AdaptiveBatchController(100, 100, 10, 4, TARGET_NANOS);
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class BlockListBatchWriterTest {
+
+    private static String number(int i) {
+        return String.format("+1555%06d", i);
+    }
+
+    @Test
+    public void block_groupsNumbersIntoBatches() {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 500);
+
+        for (int i = 0; i < 10000; i++) {
+            writer.add(number(i));
+        }
+        writer.flush();
+
+        assertEquals(20, backend.calls.get());
+        assertEquals(10000, backend.blocked.size());
+        assertEquals(10000, writer.getCountSucceeded());
+        assertEquals(0, writer.getCountErrors());
+    }
+
+    @Test
+    public void block_savesProviderCallsComparedToPerNumberInsert() {
+        int numbersCount = 100000;
+        FakeBlockListBackend perNumber = new FakeBlockListBackend();
+        FakeBlockListBackend batched = new FakeBlockListBackend();
+        BlockListBatchWriter perNumberWriter = new BlockListBatchWriter(perNumber, BulkAction.BLOCK, 1);
+        BlockListBatchWriter batchedWriter = new BlockListBatchWriter(batched, BulkAction.BLOCK, BlockListBatchWriter.DEFAULT_BATCH_SIZE);
+
+        for (int i = 0; i < numbersCount; i++) {
+            perNumberWriter.add(number(i));
+            batchedWriter.add(number(i));
+        }
+        perNumberWriter.flush();
+        batchedWriter.flush();
+
+        assertEquals(numbersCount, perNumber.calls.get());
+        assertEquals(numbersCount / BlockListBatchWriter.DEFAULT_BATCH_SIZE, batched.calls.get());
+        assertEquals(perNumber.blocked, batched.blocked);
+    }
+
+    @Test
+    public void unblock_flushesPartialBatch() {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < 10; i++) {
+            backend.blocked.add(number(i));
+        }
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.UNBLOCK, 4);
+
+        for (int i = 0; i < 10; i++) {
+            writer.add(number(i));
+        }
+        assertEquals(2, backend.calls.get());
+        writer.flush();
+
+        assertEquals(3, backend.calls.get());
+        assertTrue(backend.blocked.isEmpty());
+        assertEquals(10, writer.getCountSucceeded());
+    }
+
+    @Test
+    public void failedBatch_bisectedToFailedNumber() {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.failOnNumber = number(15);
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 10);
+
+        for (int i = 0; i < 30; i++) {
+            writer.add(number(i));
+        }
+        writer.flush();
+
+        // 10..19 fails, then 15..19, 15..16 and 15 alone fail, halves without 15 succeed
+        assertEquals(29, writer.getCountSucceeded());
+        assertEquals(1, writer.getCountErrors());
+        assertEquals(9, writer.getCountBatches());
+        assertEquals(4, writer.getCountBatchesFailed());
+        assertEquals(29, backend.blocked.size());
+    }
+
+    @Test
+    public void badNumbersInBothHalves_isolated() {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.failOnNumbers.add(number(10));
+        backend.failOnNumbers.add(number(90));
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 100);
+
+        for (int i = 0; i < 100; i++) {
+            writer.add(number(i));
+        }
+
+        // Batch and both its halves fail, every half is bisected down to its bad number
+        assertEquals(2, writer.getCountErrors());
+        assertEquals(98, writer.getCountSucceeded());
+        assertEquals(98, backend.blocked.size());
+    }
+
+    @Test
+    public void failingBackend_limitsBisection() {
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                calls.incrementAndGet();
+                throw new IllegalArgumentException("Rejected batch");
+            }
+        };
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 500);
+
+        for (int i = 0; i < 500; i++) {
+            writer.add(number(i));
+        }
+
+        // Bisection gives up after limit of failed halves instead of calling backend for every number
+        assertTrue(backend.calls.get() <= 2 + BlockListBatchWriter.MAX_BISECTION_FAILURES);
+        assertEquals(500, writer.getCountErrors());
+        assertEquals(backend.calls.get(), writer.getCountBatchesFailed());
+    }
+
+    @Test
+    public void zeroResult_failsBatch() {
+        // Provider returns 0 rows instead of throwing when transaction is too large
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                if (numbers.size() > 25) {
+                    calls.incrementAndGet();
+                    return 0;
+                }
+                return super.blockBatch(numbers);
+            }
+        };
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 200, 1, AdaptiveBatchController.DEFAULT_TARGET_LATENCY_NANOS);
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 100, null, controller);
+
+        for (int i = 0; i < 100; i++) {
+            writer.add(number(i));
+        }
+
+        // Batch and its halves fail, quarters are written, batch size shrinks
+        assertEquals(100, backend.blocked.size());
+        assertEquals(100, writer.getCountSucceeded());
+        assertEquals(0, writer.getCountErrors());
+        assertEquals(3, writer.getCountBatchesFailed());
+        assertTrue(controller.getBatchSize() < 100);
+    }
+
+    @Test
+    public void securityFailure_thrownWithoutRetries() {
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                calls.incrementAndGet();
+                throw new SecurityException("Not default dialer");
+            }
+        };
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 200, 4, AdaptiveBatchController.DEFAULT_TARGET_LATENCY_NANOS);
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 100, null, controller);
+
+        for (int i = 0; i < 99; i++) {
+            writer.add(number(i));
+        }
+        try {
+            writer.flush();
+            fail("SecurityException expected");
+        } catch (SecurityException e) {
+            // expected
+        }
+        assertEquals(1, backend.calls.get());
+        assertEquals(1, controller.getCountFailed());
+        assertEquals(2, controller.getConcurrency());
+    }
+
+    @Test
+    public void controller_setsBatchSize() {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        AdaptiveBatchController controller = new AdaptiveBatchController(10, 10, 100, 1, AdaptiveBatchController.DEFAULT_TARGET_LATENCY_NANOS);
+        BlockListBatchWriter writer = new BlockListBatchWriter(backend, BulkAction.BLOCK, 1, null, controller);
+
+        for (int i = 0; i < 1000; i++) {
+            writer.add(number(i));
+        }
+        writer.flush();
+
+        // Batches of 10, 20, ..., 100, then 100 until the end
+        assertEquals(10 + 5, backend.calls.get());
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(1000, writer.getCountSucceeded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkAction_notSupported() {
+        new BlockListBatchWriter(new FakeBlockListBackend(), BulkAction.CHECK, 10);
+    }
+}
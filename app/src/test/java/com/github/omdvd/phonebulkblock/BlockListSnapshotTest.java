@@ -0,0 +1,81 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class BlockListSnapshotTest {
+
+    @Test
+    public void indexOf_ignoresPlusAndSeparators() {
+        JobPlan plan = JobPlan.of(new PatternExpander("+7-495-123-****", "*"));
+
+        assertEquals(42, plan.indexOf("+74951230042"));
+        assertEquals(42, plan.indexOf("74951230042"));
+        assertEquals(9999, plan.indexOf("+7 (495) 123-99-99"));
+        assertEquals(-1, plan.indexOf("+7495123004"));
+        assertEquals(-1, plan.indexOf("+749512300420"));
+        assertEquals(-1, plan.indexOf("+74951240042"));
+    }
+
+    @Test
+    public void read_matchesOriginalOrE164() throws Exception {
+        JobPlan plan = JobPlan.of(new PatternExpander("+1555***", "*"));
+        BlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public void readAll(EntryVisitor visitor) {
+                visitor.visit("555-0001", "+15550001");
+                visitor.visit("+1555002", "+1555002");
+                visitor.visit("+1555999", null);
+                visitor.visit("+1666999", "+1666999");
+            }
+        };
+
+        BlockListSnapshot snapshot = BlockListSnapshot.read(backend, plan);
+
+        assertTrue(snapshot.isBlocked("+1555002"));
+        assertTrue(snapshot.isBlocked("1555999"));
+        assertFalse(snapshot.isBlocked("+1555001"));
+        assertFalse(snapshot.isBlocked("+1666999"));
+        assertEquals(2, snapshot.countBlocked());
+        assertEquals(1, snapshot.countBlocked(NumberRange.parse("+1555000..+1555998")));
+        assertEquals(2, snapshot.getBlocked().getRangesCount());
+    }
+
+    @Test
+    public void read_keepsRangesNotNumbers() throws Exception {
+        JobPlan plan = JobPlanner.plan("+7495*******");
+        InMemoryBlockListBackend backend = new InMemoryBlockListBackend();
+        for (NumberRange range : JobPlanner.parse("+74951******, +74953000000..+74953009999, +7495999****")) {
+            NumberCursor cursor = range.cursor(0, range.getSize());
+            while (cursor.hasNext()) {
+                backend.addBlocked(Collections.singletonList(cursor.next().toString()));
+            }
+        }
+
+        BlockListSnapshot snapshot = BlockListSnapshot.read(backend, plan);
+
+        assertEquals(1000000 + 10000 + 10000, snapshot.countBlocked());
+        assertEquals(3, snapshot.getBlocked().getRangesCount());
+    }
+
+    @Test
+    public void benchmark_largePattern() throws Exception {
+        PatternExpander expander = new PatternExpander("+7495*******", "*");
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < expander.getNumbersCount(); i += 10) {
+            backend.blocked.add(expander.getNumber(i));
+        }
+
+        BulkActionRunner runner = new BulkActionRunner(backend, 4, 100, BulkActionRunner.DEFAULT_SHARD_SIZE);
+        runner.run(JobPlan.of(expander), BulkAction.CHECK);
+
+        assertEquals(1, backend.calls.get());
+        assertEquals(expander.getNumbersCount() / 10, runner.getCounters().getBlocked());
+        assertEquals(expander.getNumbersCount(), runner.getCounters().getProcessed());
+    }
+}
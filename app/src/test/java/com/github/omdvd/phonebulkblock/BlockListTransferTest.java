@@ -0,0 +1,210 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class BlockListTransferTest {
+
+    // Synthetic list for throughput, sorted like provider cursor
+    private static final int LARGE_LIST_SIZE = Integer.getInteger("benchmark.transferSize", 3000000);
+
+    private static byte[] write(List<String> numbers, boolean compress) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BlockListFileWriter writer = new BlockListFileWriter(output, compress)) {
+            for (String number : numbers) {
+                writer.write(number);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static List<String> read(byte[] file) throws IOException {
+        List<String> numbers = new ArrayList<>();
+        try (BlockListFileReader reader = new BlockListFileReader(new ByteArrayInputStream(file))) {
+            String number;
+            while ((number = reader.next()) != null) {
+                numbers.add(number);
+            }
+        }
+        return numbers;
+    }
+
+    @Test
+    public void roundTrip_keepsMixedNumbers() throws Exception {
+        List<String> numbers = Arrays.asList("+15550001", "+15550002", "+15550010", "15550010", "+1555001",
+                "555-0001", "+44 20 7946 0958", "0", "+000000000000000000", "+999999999999999999",
+                "+1234567890123456789", "+15550003", "*31#", "+15550004");
+
+        for (boolean compress : new boolean[] {false, true}) {
+            assertEquals(numbers, read(write(numbers, compress)));
+        }
+    }
+
+    @Test
+    public void write_skipsRepeatedNumber() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BlockListFileWriter writer = new BlockListFileWriter(output, false)) {
+            assertTrue(writer.write("+15550001"));
+            assertEquals(false, writer.write("+15550001"));
+            assertTrue(writer.write("+15550002"));
+            assertEquals(2, writer.getCount());
+        }
+        assertEquals(Arrays.asList("+15550001", "+15550002"), read(output.toByteArray()));
+    }
+
+    @Test
+    public void read_rejectsCorruptedFiles() throws Exception {
+        byte[] file = write(Arrays.asList("+15550001", "+15550002", "text"), false);
+
+        byte[] truncated = Arrays.copyOf(file, file.length - 1);
+        byte[] wrongCount = file.clone();
+        wrongCount[file.length - 1]++;
+        byte[] wrongMagic = file.clone();
+        wrongMagic[0]++;
+        for (byte[] corrupted : new byte[][] {truncated, wrongCount, wrongMagic, new byte[0]}) {
+            try {
+                read(corrupted);
+                fail("Corrupted file accepted: " + Arrays.toString(corrupted));
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void read_emptyList() throws Exception {
+        InputStream input = new ByteArrayInputStream(write(new ArrayList<>(), true));
+        try (BlockListFileReader reader = new BlockListFileReader(input)) {
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+        Set<String> none = new HashSet<>(read(write(new ArrayList<>(), false)));
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void exportImport_restoresBlocklist() throws Exception {
+        InMemoryBlockListBackend source = new InMemoryBlockListBackend();
+        Random random = new Random(13);
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 200000; i++) {
+            numbers.add(String.format("+1%010d", (long) (random.nextDouble() * 1e10)));
+        }
+        numbers.add("555-0001");
+        source.addBlocked(numbers);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long exported = BlockListTransfer.exportTo(source, output, true);
+
+        InMemoryBlockListBackend target = new InMemoryBlockListBackend();
+        BulkActionRunner runner = new BulkActionRunner(target, 1, BlockListBatchWriter.DEFAULT_BATCH_SIZE, BulkActionRunner.DEFAULT_SHARD_SIZE);
+        BlockListBatchWriter writer = new BlockListBatchWriter(target, BulkAction.BLOCK, BlockListBatchWriter.DEFAULT_BATCH_SIZE, runner.getCounters());
+        long imported = BlockListTransfer.importFrom(new ByteArrayInputStream(output.toByteArray()), writer, runner);
+
+        assertEquals(source.getBlockedCount(), exported);
+        assertEquals(exported, imported);
+        assertEquals(exported, runner.getCounters().getBlocked());
+        assertEquals(source.getBlockedCount(), target.getBlockedCount());
+        for (String number : new HashSet<>(numbers)) {
+            assertTrue(number, target.contains(number));
+        }
+        assertEquals((exported + BlockListBatchWriter.DEFAULT_BATCH_SIZE - 1) / BlockListBatchWriter.DEFAULT_BATCH_SIZE, target.getCallsCount());
+    }
+
+    @Test
+    public void benchmark_largeSortedList() throws Exception {
+        for (boolean compress : new boolean[] {false, true}) {
+            CountingOutputStream output = new CountingOutputStream();
+            try (BlockListFileWriter writer = new BlockListFileWriter(output, compress)) {
+                for (SyntheticList numbers = new SyntheticList(LARGE_LIST_SIZE); numbers.hasNext(); ) {
+                    writer.write(numbers.next());
+                }
+            }
+
+            SyntheticList expected = new SyntheticList(LARGE_LIST_SIZE);
+            try (BlockListFileReader reader = new BlockListFileReader(new ByteArrayInputStream(output.toByteArray()))) {
+                String number;
+                while ((number = reader.next()) != null) {
+                    assertEquals(expected.next(), number);
+                }
+                assertEquals(LARGE_LIST_SIZE, reader.getCount());
+            }
+            assertTrue(output.size() < LARGE_LIST_SIZE * 3L);
+        }
+    }
+
+    /**
+     * Sorted numbers of several countries with random gaps, generated lazily
+     */
+    private static class SyntheticList {
+
+        private static final String[] PREFIXES = {"+1", "+44", "+49", "+7"};
+
+        private final Random mRandom = new Random(17);
+        private final int mCount;
+        private final int mPerPrefix;
+        private int mIndex;
+        private long mValue;
+
+        SyntheticList(int count) {
+            mCount = count;
+            mPerPrefix = (count + PREFIXES.length - 1) / PREFIXES.length;
+        }
+
+        boolean hasNext() {
+            return mIndex < mCount;
+        }
+
+        String next() {
+            if (mIndex % mPerPrefix == 0) {
+                mValue = 2000000000L;
+            }
+            mValue += 1 + mRandom.nextInt(100);
+            String prefix = PREFIXES[mIndex / mPerPrefix];
+            mIndex++;
+            return prefix + mValue;
+        }
+    }
+
+    /**
+     * Keeps written bytes to read them back
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            mBytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            mBytes.write(b, off, len);
+        }
+
+        int size() {
+            return mBytes.size();
+        }
+
+        byte[] toByteArray() {
+            return mBytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of bulk actions over in-memory backend: numbers/s, bytes allocated by engine per number
+ * and p99 latency of backend calls. Sizes from 10^3 up to benchmark.maxSize, default 10^5,
+ * run with -Dbenchmark.maxSize=10000000 for full suite, results are printed only when size is given.
+ * Simulated provider latency is set by -Dbenchmark.callLatencyNanos and -Dbenchmark.numberLatencyNanos.
+ */
+public class BulkActionBenchmarkTest {
+
+    private static final long MAX_SIZE = Long.getLong("benchmark.maxSize", 100000);
+    private static final boolean PRINT_RESULTS = System.getProperty("benchmark.maxSize") != null;
+    private static final long CALL_LATENCY_NANOS = Long.getLong("benchmark.callLatencyNanos", 0);
+    private static final long NUMBER_LATENCY_NANOS = Long.getLong("benchmark.numberLatencyNanos", 0);
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Backend measuring latency and allocations of every call, so they can be excluded from engine allocations
+     */
+    private static class MeasuringBackend implements BlockListBackend {
+
+        final BlockListBackend backend;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder allocatedBytes = new LongAdder();
+
+        MeasuringBackend(BlockListBackend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public void readAll(@NonNull EntryVisitor visitor) throws Exception {
+            long start = begin();
+            try {
+                backend.readAll(visitor);
+            } finally {
+                end(start);
+            }
+        }
+
+        @Override
+        public boolean isBlocked(@NonNull String number) throws Exception {
+            long start = begin();
+            try {
+                return backend.isBlocked(number);
+            } finally {
+                end(start);
+            }
+        }
+
+        @Override
+        public int blockBatch(@NonNull List<String> numbers) throws Exception {
+            long start = begin();
+            try {
+                return backend.blockBatch(numbers);
+            } finally {
+                end(start);
+            }
+        }
+
+        @Override
+        public int unblockBatch(@NonNull List<String> numbers) throws Exception {
+            long start = begin();
+            try {
+                return backend.unblockBatch(numbers);
+            } finally {
+                end(start);
+            }
+        }
+
+        private long begin() {
+            allocatedBytes.add(-currentThreadAllocatedBytes());
+            return System.nanoTime();
+        }
+
+        private void end(long start) {
+            latency.record(System.nanoTime() - start);
+            allocatedBytes.add(currentThreadAllocatedBytes());
+        }
+    }
+
+    /**
+     * Factory of worker threads summing allocations of every worker when it ends
+     */
+    private static class MeasuringThreadFactory implements ThreadFactory {
+
+        final ThreadFactory factory = Executors.defaultThreadFactory();
+        final ConcurrentLinkedQueue<Thread> threads = new ConcurrentLinkedQueue<>();
+        final LongAdder allocatedBytes = new LongAdder();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = factory.newThread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    allocatedBytes.add(currentThreadAllocatedBytes());
+                }
+            });
+            threads.add(thread);
+            return thread;
+        }
+
+        long join() throws InterruptedException {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return allocatedBytes.sum();
+        }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static JobPlan plan(long size) {
+        StringBuilder pattern = new StringBuilder("+1555");
+        for (long i = 1; i < size; i *= 10) {
+            pattern.append('*');
+        }
+        return JobPlan.of(new PatternExpander(pattern.toString(), "*"));
+    }
+
+    private static BulkActionCounters measure(InMemoryBlockListBackend inMemory, JobPlan plan, int action, boolean useSnapshot) throws InterruptedException {
+        MeasuringBackend backend = new MeasuringBackend(inMemory);
+        MeasuringThreadFactory threadFactory = new MeasuringThreadFactory();
+        BulkActionRunner runner = new BulkActionRunner(backend, BulkActionRunner.DEFAULT_WORKERS_COUNT, BlockListBatchWriter.DEFAULT_BATCH_SIZE, BulkActionRunner.DEFAULT_SHARD_SIZE);
+        runner.setUseSnapshot(useSnapshot);
+        runner.setThreadFactory(threadFactory);
+
+        long callerAllocated = currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        runner.run(plan, action);
+        long durationNanos = System.nanoTime() - start;
+        callerAllocated = currentThreadAllocatedBytes() - callerAllocated;
+        long engineAllocated = callerAllocated + threadFactory.join() - backend.allocatedBytes.sum();
+
+        long size = plan.getNumbersCount();
+        if (PRINT_RESULTS) {
+            System.out.printf("%-7s %-8s %,11d numbers: %,13.0f numbers/s, %7.1f bytes/number, %,7d calls, p99 call %,11d ns%n",
+                    BulkAction.getName(action), useSnapshot ? "snapshot" : "direct", size,
+                    size * 1e9 / durationNanos, (double) Math.max(0, engineAllocated) / size,
+                    backend.latency.getCount(), backend.latency.getPercentile(99));
+        }
+        return runner.getCounters();
+    }
+
+    @Test
+    public void benchmark_allActions() throws Exception {
+        if (PRINT_RESULTS) {
+            System.out.printf("Benchmark up to %,d numbers, call latency %d ns, number latency %d ns%n",
+                    MAX_SIZE, CALL_LATENCY_NANOS, NUMBER_LATENCY_NANOS);
+        }
+        for (long size = 1000; size <= MAX_SIZE; size *= 10) {
+            JobPlan plan = plan(size);
+            InMemoryBlockListBackend backend = new InMemoryBlockListBackend(CALL_LATENCY_NANOS, NUMBER_LATENCY_NANOS);
+
+            assertEquals(size, measure(backend, plan, BulkAction.BLOCK, true).getBlocked());
+            assertEquals(size, measure(backend, plan, BulkAction.CHECK, true).getBlocked());
+            assertEquals(size, measure(backend, plan, BulkAction.CHECK, false).getBlocked());
+            assertEquals(size, measure(backend, plan, BulkAction.BLOCK, true).getSkipped());
+            assertEquals(size, measure(backend, plan, BulkAction.UNBLOCK, true).getUnblocked());
+            assertEquals(0, backend.getBlockedCount());
+        }
+    }
+}
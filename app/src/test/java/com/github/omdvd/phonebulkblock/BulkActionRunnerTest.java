@@ -0,0 +1,208 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BulkActionRunnerTest {
+
+    private static final JobPlan PATTERN = JobPlan.of(new PatternExpander("+1555*****", "*"));
+
+    private BulkActionRunner runner(BlockListBackend backend, int workersCount) {
+        return new BulkActionRunner(backend, workersCount, 100, 1000);
+    }
+
+    @Test
+    public void block_totalsExactUnderManyWorkers() throws Exception {
+        for (int workersCount : new int[] {1, 2, 8, 16}) {
+            FakeBlockListBackend backend = new FakeBlockListBackend();
+            BulkActionRunner runner = runner(backend, workersCount);
+
+            runner.run(PATTERN, BulkAction.BLOCK);
+
+            BulkActionCounters counters = runner.getCounters();
+            assertEquals(PATTERN.getNumbersCount(), counters.getProcessed());
+            assertEquals(PATTERN.getNumbersCount(), counters.getBlocked());
+            assertEquals(0, counters.getErrors());
+            assertEquals(PATTERN.getNumbersCount(), backend.blocked.size());
+            assertEquals(1 + PATTERN.getNumbersCount() / 100, backend.calls.get());
+        }
+    }
+
+    @Test
+    public void check_countsBlockedAndNotBlocked() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < PATTERN.getNumbersCount(); i += 3) {
+            backend.blocked.add(PATTERN.getNumber(i));
+        }
+        backend.failOnNumber = PATTERN.getNumber(1);
+        BulkActionRunner runner = runner(backend, 8);
+        runner.setUseSnapshot(false);
+
+        runner.run(PATTERN, BulkAction.CHECK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(PATTERN.getNumbersCount(), counters.getProcessed());
+        assertEquals(33334, counters.getBlocked());
+        assertEquals(66665, counters.getNotBlocked());
+        assertEquals(1, counters.getErrors());
+    }
+
+    @Test
+    public void unblock_deletesNumbersByOriginalForm() throws Exception {
+        NumberCanonicalizer canonicalizer = new NumberCanonicalizer("7", "8", 10);
+        JobPlan plan = JobPlanner.plan("8-495-123-00**", canonicalizer);
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.blocked.add("84951230001");
+        backend.blocked.add("8 (495) 123-00-02");
+        backend.blocked.add("+74951230003");
+        backend.blocked.add("+74951230099");
+        backend.blocked.add("84951230099");
+        backend.blocked.add("84951239999");
+        BulkActionRunner runner = runner(backend, 2);
+        runner.setCanonicalizer(canonicalizer);
+
+        runner.run(plan, BulkAction.UNBLOCK);
+
+        // Plan holds canonical numbers, blocklist rows without E.164 form are deleted by their original numbers
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(Collections.singleton("84951239999"), backend.blocked);
+        assertEquals(100, counters.getProcessed());
+        assertEquals(5, counters.getUnblocked());
+        assertEquals(0, counters.getErrors());
+    }
+
+    @Test
+    public void check_snapshotUsesSingleQuery() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < PATTERN.getNumbersCount(); i += 3) {
+            backend.blocked.add(PATTERN.getNumber(i));
+        }
+        backend.blocked.add("+1666" + "00000");
+        BulkActionRunner runner = runner(backend, 8);
+
+        runner.run(PATTERN, BulkAction.CHECK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(1, backend.calls.get());
+        assertEquals(PATTERN.getNumbersCount(), counters.getProcessed());
+        assertEquals(33334, counters.getBlocked());
+        assertEquals(66666, counters.getNotBlocked());
+        assertEquals(0, counters.getErrors());
+    }
+
+    @Test
+    public void block_writesOnlyNumbersNotBlockedYet() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < PATTERN.getNumbersCount(); i += 2) {
+            backend.blocked.add(PATTERN.getNumber(i));
+        }
+        BulkActionRunner runner = runner(backend, 8);
+
+        runner.run(PATTERN, BulkAction.BLOCK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(PATTERN.getNumbersCount(), counters.getProcessed());
+        assertEquals(PATTERN.getNumbersCount() / 2, counters.getBlocked());
+        assertEquals(PATTERN.getNumbersCount() / 2, counters.getSkipped());
+        assertEquals(PATTERN.getNumbersCount(), backend.blocked.size());
+        assertEquals(1 + PATTERN.getNumbersCount() / 2 / 100, backend.calls.get());
+    }
+
+    @Test
+    public void unblock_writesOnlyBlockedNumbers() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < 1000; i++) {
+            backend.blocked.add(PATTERN.getNumber(i * 7));
+        }
+        BulkActionRunner runner = runner(backend, 8);
+
+        runner.run(PATTERN, BulkAction.UNBLOCK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(1000, counters.getUnblocked());
+        assertEquals(PATTERN.getNumbersCount() - 1000, counters.getSkipped());
+        assertTrue(backend.blocked.isEmpty());
+        assertTrue(backend.calls.get() <= 1 + 100);
+    }
+
+    @Test
+    public void rerunBlock_isIdempotent() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        runner(backend, 4).run(PATTERN, BulkAction.BLOCK);
+        backend.calls.set(0);
+        BulkActionRunner runner = runner(backend, 4);
+
+        runner.run(PATTERN, BulkAction.BLOCK);
+
+        assertEquals(1, backend.calls.get());
+        assertEquals(0, runner.getCounters().getBlocked());
+        assertEquals(PATTERN.getNumbersCount(), runner.getCounters().getSkipped());
+    }
+
+    @Test
+    public void unblock_failedNumberIsolatedByBisection() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        for (int i = 0; i < PATTERN.getNumbersCount(); i++) {
+            backend.blocked.add(PATTERN.getNumber(i));
+        }
+        backend.failOnNumber = PATTERN.getNumber(55555);
+        BulkActionRunner runner = runner(backend, 8);
+
+        runner.run(PATTERN, BulkAction.UNBLOCK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(PATTERN.getNumbersCount() - 1, counters.getUnblocked());
+        assertEquals(1, counters.getErrors());
+        assertEquals(1, backend.blocked.size());
+        assertTrue(backend.blocked.contains(PATTERN.getNumber(55555)));
+    }
+
+    @Test
+    public void block_adaptsBatchSizeToTransactionLimit() throws Exception {
+        InMemoryBlockListBackend backend = new InMemoryBlockListBackend();
+        backend.setMaxNumbersPerCall(700);
+        AdaptiveBatchController controller = new AdaptiveBatchController(50, 100, 5000, 4, AdaptiveBatchController.DEFAULT_TARGET_LATENCY_NANOS);
+        BulkActionRunner runner = runner(backend, 4);
+        runner.setBatchController(controller);
+
+        runner.run(PATTERN, BulkAction.BLOCK);
+
+        BulkActionCounters counters = runner.getCounters();
+        assertEquals(PATTERN.getNumbersCount(), counters.getBlocked());
+        assertEquals(0, counters.getErrors());
+        assertEquals(PATTERN.getNumbersCount(), backend.getBlockedCount());
+        assertTrue(controller.getBatchSize() <= 750);
+        assertTrue(controller.getCountFailed() > 0);
+        // Batches grew well beyond initial size, so far fewer calls than with fixed batch of 100
+        assertTrue("calls " + backend.getCallsCount(), backend.getCallsCount() < PATTERN.getNumbersCount() / 100 / 2);
+    }
+
+    @Test
+    public void stop_finishesEarly() throws Exception {
+        BulkActionRunner[] runner = new BulkActionRunner[1];
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                if (blocked.size() >= 5000) {
+                    runner[0].stop();
+                }
+                return super.blockBatch(numbers);
+            }
+        };
+        runner[0] = runner(backend, 4);
+
+        runner[0].run(PATTERN, BulkAction.BLOCK);
+
+        BulkActionCounters counters = runner[0].getCounters();
+        assertTrue(counters.getProcessed() < PATTERN.getNumbersCount());
+        assertEquals(counters.getProcessed(), counters.getBlocked());
+        assertEquals(counters.getProcessed(), backend.blocked.size());
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class BulkJobMetricsTest {
+
+    private static final JobPlan PATTERN = JobPlan.of(new PatternExpander("+1555****", "*"));
+
+    /**
+     * Tracer remembering sections of all threads, checks that every thread ends only sections it began
+     */
+    private static class RecordingTracer implements BulkJobTracer {
+        final List<String> begun = Collections.synchronizedList(new ArrayList<>());
+        final ThreadLocal<List<String>> open = ThreadLocal.withInitial(ArrayList::new);
+        volatile int unbalanced;
+
+        @Override
+        public void beginSection(@NonNull String name) {
+            begun.add(name);
+            open.get().add(name);
+        }
+
+        @Override
+        public void endSection() {
+            List<String> sections = open.get();
+            if (sections.isEmpty()) {
+                unbalanced++;
+            } else {
+                sections.remove(sections.size() - 1);
+            }
+        }
+    }
+
+    private static class CountingStats implements BulkJobMetrics.RuntimeStats {
+        long gcCount;
+
+        @Override
+        public long getGcCount() {
+            return gcCount++;
+        }
+
+        @Override
+        public long getGcTimeMillis() {
+            return 40;
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            return -1;
+        }
+    }
+
+    @Test
+    public void block_recordsBatchesErrorsAndSections() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.failOnNumber = PATTERN.getNumber(1234);
+        RecordingTracer tracer = new RecordingTracer();
+        BulkActionRunner runner = new BulkActionRunner(backend, 4, 100, 1000);
+        runner.setMetrics(new BulkJobMetrics(tracer, new CountingStats()));
+        BulkJob job = new BulkJob(PATTERN, BulkAction.BLOCK, runner, null);
+
+        job.run();
+
+        BulkJobMetrics metrics = job.getMetrics();
+        LatencyHistogram batches = metrics.getLatency(BulkJobMetrics.OP_BLOCK_BATCH);
+        // 100 full batches, failed one is bisected down to single number: 2 calls on every of 6 levels
+        assertEquals(100 + 2 * 6, batches.getCount());
+        assertEquals(batches.getCount(), metrics.getBatchSizes().getCount());
+        assertEquals(100, metrics.getBatchSizes().getMax());
+        assertEquals(1, metrics.getLatency(BulkJobMetrics.OP_SNAPSHOT).getCount());
+        assertEquals(10, metrics.getLatency(BulkJobMetrics.OP_SHARD).getCount());
+        assertEquals(10, metrics.getQueueDepths().getCount());
+        // Workers may start shards while others are still submitted
+        assertTrue(metrics.getQueueDepths().getMax() <= 9);
+        assertEquals(Collections.singletonMap(IllegalArgumentException.class.getName(), 7L), metrics.getErrors());
+        assertEquals(1, job.getCounters().getErrors());
+
+        assertEquals(1, metrics.getGcCount());
+        assertEquals(0, metrics.getGcTimeMillis());
+        assertEquals(-1, metrics.getAllocatedBytes());
+        assertTrue(metrics.getDurationNanos() > 0);
+
+        assertEquals(0, tracer.unbalanced);
+        assertEquals(1 + 1 + 10 + batches.getCount(), tracer.begun.size());
+        assertEquals("job block", tracer.begun.get(0));
+        assertEquals(BulkJobMetrics.OP_SNAPSHOT, tracer.begun.get(1));
+    }
+
+    @Test
+    public void check_recordsLatencyPerNumberWithoutSections() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        RecordingTracer tracer = new RecordingTracer();
+        BulkActionRunner runner = new BulkActionRunner(backend, 2, 100, 5000);
+        runner.setUseSnapshot(false);
+        runner.setMetrics(new BulkJobMetrics(tracer, BulkJobMetrics.RuntimeStats.NONE));
+
+        runner.run(PATTERN, BulkAction.CHECK);
+
+        BulkJobMetrics metrics = runner.getMetrics();
+        assertEquals(PATTERN.getNumbersCount(), metrics.getLatency(BulkJobMetrics.OP_CHECK).getCount());
+        assertEquals(0, metrics.getBatchSizes().getCount());
+        assertEquals(2, tracer.begun.size());
+        assertEquals(-1, metrics.getGcCount());
+        assertEquals(0, tracer.unbalanced);
+    }
+
+    @Test
+    public void report_jsonAndCsv() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.failOnNumber = PATTERN.getNumber(5);
+        BulkActionRunner runner = new BulkActionRunner(backend, 1, 100, BulkActionRunner.DEFAULT_SHARD_SIZE);
+        runner.setBatchController(new AdaptiveBatchController(100, 1));
+        BulkJob job = new BulkJob(PATTERN, BulkAction.BLOCK, runner, null);
+        job.getMetrics().setProperty("device", "Test \"device\", 1");
+        job.run();
+
+        StringBuilder json = new StringBuilder();
+        BulkJobReport.writeJson(job, json);
+        String text = json.toString();
+        assertTrue(text, text.startsWith("{\n  \"action\": \"block\",\n  \"plan\": \"+1555****\",\n  \"numbers\": 10000,"));
+        assertTrue(text, text.contains("\"device\": \"Test \\\"device\\\", 1\""));
+        assertTrue(text, text.contains("\"errors\": 1\n"));
+        assertTrue(text, text.contains("\"block_batch\": {\"count\": "));
+        long errors = job.getMetrics().getErrors().get(IllegalArgumentException.class.getName());
+        assertTrue(text, text.contains("\"java.lang.IllegalArgumentException\": " + errors + "\n"));
+        assertTrue(text, text.contains("\"batch_controller\": {"));
+        assertEquals(count(text, '{'), count(text, '}'));
+
+        StringBuilder csv = new StringBuilder();
+        BulkJobReport.writeCsv(job, csv);
+        String[] rows = csv.toString().split("\n");
+        assertEquals(BulkJobReport.CSV_HEADER, rows[0]);
+        for (String row : rows) {
+            // Quoted commas are part of value
+            assertEquals(row, 7, count(row.replaceAll("\"[^\"]*(\"\"[^\"]*)*\"", ""), ','));
+        }
+        assertTrue(csv.toString().contains("\nproperty,device,\"Test \"\"device\"\", 1\",,,,,\n"));
+        assertTrue(csv.toString().contains("\ncounter,blocked,9999,,,,,\n"));
+        assertTrue(csv.toString().contains("\nerror,java.lang.IllegalArgumentException," + errors + ",,,,,\n"));
+    }
+
+    @Test
+    public void report_emptyMetrics() throws Exception {
+        BulkJob job = new BulkJob(PATTERN, BulkAction.CHECK, new BulkActionRunner(new FakeBlockListBackend(), 1, 1, 1), null);
+
+        StringBuilder json = new StringBuilder();
+        BulkJobReport.writeJson(job, json);
+
+        assertTrue(json.toString(), json.toString().contains("\"latency_ns\": {},\n"));
+        assertTrue(json.toString(), json.toString().contains("\"errors_by_class\": {},\n"));
+        assertTrue(json.toString(), json.toString().contains("\"gc_count\": -1,"));
+        Map<String, LatencyHistogram> latencies = job.getMetrics().getLatencies();
+        assertTrue(latencies.isEmpty());
+    }
+
+    private static int count(String text, char c) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BulkJobSpecTest {
+
+    private static Map<String, String> values(String... keysAndValues) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return values;
+    }
+
+    @Test
+    public void parse_defaults() {
+        BulkJobSpec spec = BulkJobSpec.parse(values("pattern", "+1555****", "action", "block"));
+
+        assertNull(spec.getId());
+        assertEquals("+1555****", spec.getPattern());
+        assertEquals(BulkAction.BLOCK, spec.getAction());
+        assertEquals(BulkActionRunner.DEFAULT_WORKERS_COUNT, spec.getWorkersCount());
+        assertEquals(BlockListBatchWriter.DEFAULT_BATCH_SIZE, spec.getBatchSize());
+        assertEquals(BulkActionRunner.DEFAULT_SHARD_SIZE, spec.getShardSize());
+        assertTrue(spec.isAdaptive());
+        assertTrue(spec.isUseSnapshot());
+    }
+
+    @Test
+    public void parse_allSettings() {
+        BulkJobSpec spec = BulkJobSpec.parse(values("id", "fleet-01_a", "pattern", "+1555****", "action", "2",
+                "workers", "2", "batch_size", "50", "shard_size", "1000", "adaptive", "false", "snapshot", "no"));
+
+        assertEquals("fleet-01_a", spec.getId());
+        assertEquals(BulkAction.UNBLOCK, spec.getAction());
+        assertEquals(2, spec.getWorkersCount());
+        assertEquals(50, spec.getBatchSize());
+        assertEquals(1000, spec.getShardSize());
+        assertFalse(spec.isAdaptive());
+        assertFalse(spec.isUseSnapshot());
+
+        BulkJobMetrics metrics = new BulkJobMetrics();
+        spec.setProperties(metrics);
+        assertEquals("fleet-01_a", metrics.getProperties().get("id"));
+        assertEquals("50", metrics.getProperties().get("batch_size"));
+        assertEquals("false", metrics.getProperties().get("snapshot"));
+    }
+
+    @Test
+    public void parse_rejectsWrongSettings() {
+        for (Map<String, String> wrong : Arrays.asList(
+                values("action", "block"),
+                values("pattern", "+1555****"),
+                values("pattern", "+1555****", "action", "erase"),
+                values("pattern", " ", "action", "block"),
+                values("pattern", "+1555****", "action", "block", "id", "../x"),
+                values("pattern", "+1555****", "action", "block", "id", ".hidden"),
+                values("pattern", "+1555****", "action", "block", "workers", "0"),
+                values("pattern", "+1555****", "action", "block", "workers", "99999999999"),
+                values("pattern", "+1555****", "action", "block", "batch_size", "x"),
+                values("pattern", "+1555****", "action", "block", "shard_size", "-1"),
+                values("pattern", "+1555****", "action", "block", "adaptive", "maybe"))) {
+            try {
+                BulkJobSpec.parse(wrong);
+                throw new AssertionError("Parsed " + wrong);
+            } catch (IllegalArgumentException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void action_parsedByNameOrNumber() {
+        assertEquals(BulkAction.CHECK, BulkAction.parse(" Check "));
+        assertEquals(BulkAction.CHECK, BulkAction.parse("1"));
+        assertEquals(BulkAction.UNBLOCK, BulkAction.parse("unblock"));
+    }
+
+    @Test
+    public void queuedSpecs_runBackToBack() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        BulkJobSpec block = BulkJobSpec.parse(values("id", "1", "pattern", "+1555****", "action", "block", "workers", "2", "adaptive", "false"));
+        BulkJobSpec unblock = BulkJobSpec.parse(values("id", "2", "pattern", "+15550***", "action", "unblock", "batch_size", "100"));
+
+        BulkActionRunner blockRunner = block.createRunner(backend);
+        assertNull(blockRunner.getBatchController());
+        new BulkJob(JobPlanner.plan(block.getPattern()), block.getAction(), blockRunner, null).run();
+        assertEquals(10000, backend.blocked.size());
+
+        BulkActionRunner unblockRunner = unblock.createRunner(backend);
+        assertNotNull(unblockRunner.getBatchController());
+        BulkJob job = new BulkJob(JobPlanner.plan(unblock.getPattern()), unblock.getAction(), unblockRunner, null);
+        job.run();
+        assertTrue(job.isComplete());
+        assertEquals(9000, backend.blocked.size());
+    }
+
+    @Test
+    public void errorReport_json() throws Exception {
+        StringBuilder json = new StringBuilder();
+
+        BulkJobReport.writeErrorJson("job-1", "Unknown action: \"erase\"", json);
+
+        assertEquals("{\n  \"id\": \"job-1\",\n  \"complete\": false,\n  \"error\": \"Unknown action: \\\"erase\\\"\"\n}\n", json.toString());
+    }
+}
@@ -0,0 +1,281 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkJobTest {
+
+    private static final JobPlan PATTERN = JobPlan.of(new PatternExpander("+1555*****", "*"));
+    private static final long SHARD_SIZE = 1000;
+
+    private File mCheckpointFile;
+    private BulkJobCheckpointStore mStore;
+
+    /**
+     * Backend remembering how many times every number was written, stops job after given count of writes
+     */
+    private static class CountingBackend extends FakeBlockListBackend {
+        final Map<String, AtomicInteger> writes = new ConcurrentHashMap<>();
+        final AtomicInteger written = new AtomicInteger();
+        volatile BulkJob job;
+        volatile int stopAfter = Integer.MAX_VALUE;
+
+        @Override
+        public int blockBatch(@NonNull List<String> numbers) {
+            for (String number : numbers) {
+                writes.computeIfAbsent(number, key -> new AtomicInteger()).incrementAndGet();
+            }
+            if (written.addAndGet(numbers.size()) >= stopAfter) {
+                job.stop();
+            }
+            return super.blockBatch(numbers);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mCheckpointFile = File.createTempFile("checkpoint", ".properties");
+        mCheckpointFile.delete();
+        mStore = new BulkJobCheckpointStore(mCheckpointFile);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.clear();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BulkJob job(BlockListBackend backend) {
+        return new BulkJob(PATTERN, BulkAction.BLOCK, new BulkActionRunner(backend, 4, 100, SHARD_SIZE), mStore);
+    }
+
+    @Test
+    public void interruptedJob_resumesWithoutReprocessingCompletedShards() throws Exception {
+        CountingBackend backend = new CountingBackend();
+        backend.stopAfter = 40000;
+        BulkJob firstRun = job(backend);
+        backend.job = firstRun;
+
+        firstRun.run();
+
+        assertFalse(firstRun.isComplete());
+        BulkJobCheckpoint checkpoint = mStore.load();
+        assertNotNull(checkpoint);
+        NumberRangeSet completed = checkpoint.getCompleted();
+        assertTrue(completed.getSize() > 0);
+        assertEquals(0, completed.getSize() % SHARD_SIZE);
+        assertEquals(completed.getSize(), checkpoint.getCompletedCounters().getProcessed());
+        assertTrue(firstRun.getResultMessage().contains("Stopped with " + completed.getSize() + " of "));
+
+        // Restart job with fresh runner, as after process death
+        Map<String, AtomicInteger> firstRunWrites = new ConcurrentHashMap<>(backend.writes);
+        backend.writes.clear();
+        backend.stopAfter = Integer.MAX_VALUE;
+        BulkJob secondRun = job(backend);
+        backend.job = secondRun;
+
+        secondRun.run();
+
+        assertTrue(secondRun.isComplete());
+        assertNull(mStore.load());
+        for (NumberRange range : completed) {
+            NumberCursor cursor = range.withPlus(true).cursor(0, range.getSize());
+            while (cursor.hasNext()) {
+                String number = cursor.next().toString();
+                assertEquals(1, firstRunWrites.get(number).get());
+                assertNull("Completed number written again: " + number, backend.writes.get(number));
+            }
+        }
+        assertEquals(PATTERN.getNumbersCount(), backend.blocked.size());
+        assertEquals(PATTERN.getNumbersCount(), secondRun.getCounters().getProcessed());
+        // Numbers of interrupted shards were written before and are skipped now
+        assertEquals(PATTERN.getNumbersCount(), secondRun.getCounters().getBlocked() + secondRun.getCounters().getSkipped());
+        assertEquals(checkpoint.getCompletedCounters().getProcessed(), secondRun.getResumedProcessed());
+    }
+
+    @Test
+    public void cancel_returnsWhileBackendCallIsBlocked() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCalls = new CountDownLatch(1);
+        AtomicInteger finishedCalls = new AtomicInteger();
+        // Provider calls can not be interrupted, they block until test releases them
+        InMemoryBlockListBackend backend = new InMemoryBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                callStarted.countDown();
+                awaitUninterruptibly(releaseCalls);
+                finishedCalls.incrementAndGet();
+                return super.blockBatch(numbers);
+            }
+        };
+        BulkJob job = job(backend);
+        Thread thread = new Thread(() -> {
+            try {
+                job.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+        job.getHandle().cancel();
+        thread.join(10000);
+
+        // Job does not wait for blocked calls beyond grace period
+        assertFalse(thread.isAlive());
+        assertEquals(0, finishedCalls.get());
+        releaseCalls.countDown();
+        assertTrue(job.isFinished());
+        assertFalse(job.isComplete());
+        // No batch finished before cancel, so no shard is reported as completed
+        assertTrue(job.getCompleted().isEmpty());
+        assertEquals(0, mStore.load().getCompleted().getSize());
+        assertEquals(0, job.getCounters().getErrors());
+    }
+
+    @Test
+    public void pause_holdsWorkersUntilResumed() throws Exception {
+        BulkJob[] job = new BulkJob[1];
+        AtomicInteger batchCalls = new AtomicInteger();
+        AtomicInteger pausedCalls = new AtomicInteger();
+        // First backend call pauses job, workers stop before their next call
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                if (batchCalls.incrementAndGet() == 1) {
+                    job[0].getHandle().pause();
+                } else if (job[0].getHandle().isPaused()) {
+                    pausedCalls.incrementAndGet();
+                }
+                return super.blockBatch(numbers);
+            }
+        };
+        job[0] = job(backend);
+        Thread thread = new Thread(() -> {
+            try {
+                job[0].run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        // Paused job can not finish however long it is waited for
+        thread.join(300);
+        assertTrue(thread.isAlive());
+        assertTrue(job[0].getHandle().isPaused());
+
+        assertTrue(job[0].getHandle().resume());
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(job[0].isComplete());
+        // Only other workers which passed pause check before first call may call backend while paused
+        assertTrue("calls while paused " + pausedCalls.get(), pausedCalls.get() <= 3);
+        assertEquals(PATTERN.getNumbersCount(), backend.blocked.size());
+    }
+
+    @Test
+    public void cancel_releasesPausedWorkers() throws Exception {
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        BulkJob job = job(backend);
+        job.getHandle().pause();
+        Thread thread = new Thread(() -> {
+            try {
+                job.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        thread.join(100);
+        assertTrue(thread.isAlive());
+
+        job.stop();
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertEquals(BulkJobHandle.STATE_CANCELLED, job.getHandle().getState());
+        assertFalse(job.getHandle().resume());
+        assertEquals(0, job.getCounters().getProcessed());
+        assertTrue(job.getResultMessage().contains("Stopped with 0 of "));
+    }
+
+    @Test
+    public void checkpointOfOtherJob_ignored() throws Exception {
+        mStore.save(new BulkJobCheckpoint(PATTERN.toString(), BulkAction.UNBLOCK, PATTERN.getNumbers(), new BulkActionCounters()));
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        BulkJob job = job(backend);
+
+        job.run();
+
+        assertEquals(0, job.getResumedProcessed());
+        assertEquals(PATTERN.getNumbersCount(), backend.blocked.size());
+    }
+
+    @Test
+    public void checkpointStore_roundTrip() throws Exception {
+        NumberRangeSet completed = JobPlanner.plan("+15550****, +155510000..+155510999, +15552****").getNumbers();
+        BulkActionCounters counters = new BulkActionCounters();
+        counters.addProcessed(29000);
+        counters.addBlocked(28990);
+        counters.addErrors(10);
+        mStore.save(new BulkJobCheckpoint("+1555*****", BulkAction.BLOCK, completed, counters));
+
+        BulkJobCheckpoint checkpoint = mStore.load();
+
+        assertEquals("155500000..155510999,15552****", checkpoint.getCompleted().toString());
+        assertEquals(completed, checkpoint.getCompleted());
+        assertTrue(checkpoint.isSameJob("+1555*****", BulkAction.BLOCK));
+        assertEquals(29000, checkpoint.getCompletedCounters().getProcessed());
+        assertEquals(28990, checkpoint.getCompletedCounters().getBlocked());
+        assertEquals(10, checkpoint.getCompletedCounters().getErrors());
+    }
+
+    @Test
+    public void checkpointStore_roundTripLargeRange() throws Exception {
+        NumberRangeSet completed = JobPlanner.plan("+7400000000..+7499999999, +7500000000..+7500000999").getNumbers();
+        BulkActionCounters counters = new BulkActionCounters();
+        counters.addProcessed(completed.getSize());
+        mStore.save(new BulkJobCheckpoint("+7400000000..+7500000999", BulkAction.BLOCK, completed, counters));
+
+        BulkJobCheckpoint checkpoint = mStore.load();
+
+        assertNotNull(checkpoint);
+        assertEquals(100_001_000L, checkpoint.getCompleted().getSize());
+        assertEquals(completed, checkpoint.getCompleted());
+        assertEquals(completed.getSize(), checkpoint.getCompletedCounters().getProcessed());
+    }
+}
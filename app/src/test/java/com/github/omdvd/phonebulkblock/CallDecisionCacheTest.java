@@ -0,0 +1,98 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class CallDecisionCacheTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void decision_expiresAfterTtl() {
+        CallDecisionCache cache = new CallDecisionCache(10, 1000);
+        long now = 5 * SECOND;
+        cache.put("84951234567", true, "+74951234567", cache.getGeneration(), now);
+
+        CallDecisionCache.Decision decision = cache.get("84951234567", now + SECOND / 2);
+        assertNotNull(decision);
+        assertTrue(decision.isReject());
+        assertEquals("+74951234567", decision.getCanonicalNumber());
+        assertNull(cache.get("84951234567", now + SECOND));
+        assertNull(cache.get("84951234568", now));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void invalidate_outdatesAllDecisions() {
+        CallDecisionCache cache = new CallDecisionCache(10, 1000);
+        long now = System.nanoTime();
+        cache.put("1", false, "1", cache.getGeneration(), now);
+        // Screening started before invalidation
+        long generation = cache.getGeneration();
+        cache.invalidate();
+        cache.put("2", true, "2", generation, now);
+
+        assertNull(cache.get("1", now));
+        assertNull(cache.get("2", now));
+        cache.put("1", true, "1");
+        assertTrue(cache.get("1").isReject());
+    }
+
+    @Test
+    public void put_boundsSizeEvictingInvalidFirst() {
+        CallDecisionCache cache = new CallDecisionCache(8, 1000);
+        long now = 0;
+        for (int i = 0; i < 4; i++) {
+            cache.put("old" + i, false, "old" + i, cache.getGeneration(), now);
+        }
+        now += 2 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            cache.put("new" + i, false, "new" + i, cache.getGeneration(), now);
+        }
+
+        // Only expired decisions are evicted while valid ones fit
+        assertEquals(5, cache.size());
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(cache.get("new" + i, now));
+        }
+        for (int i = 5; i < 100; i++) {
+            cache.put("new" + i, false, "new" + i, cache.getGeneration(), now);
+            assertTrue(cache.size() <= 8);
+        }
+    }
+
+    @Test
+    public void concurrentCalls_keepSizeBounded() throws Exception {
+        CallDecisionCache cache = new CallDecisionCache(100, 60000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    String number = Integer.toString((i * 7 + thread) % 500);
+                    if (cache.get(number) == null) {
+                        cache.put(number, i % 2 == 0, number);
+                    }
+                    if (i % 5000 == 0) {
+                        cache.invalidate();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue("size " + cache.size(), cache.size() <= 100 + 4);
+        assertEquals(4 * 20000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() > 0);
+    }
+}
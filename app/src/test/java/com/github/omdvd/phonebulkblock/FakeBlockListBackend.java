@@ -0,0 +1,60 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocklist backend in memory, safe for many threads, counts calls as provider round trips
+ */
+public class FakeBlockListBackend implements BlockListBackend {
+
+    public final Set<String> blocked = ConcurrentHashMap.newKeySet();
+    public final AtomicInteger calls = new AtomicInteger();
+    public final Set<String> failOnNumbers = ConcurrentHashMap.newKeySet();
+    public volatile String failOnNumber;
+
+    @Override
+    public void readAll(@NonNull EntryVisitor visitor) {
+        calls.incrementAndGet();
+        for (String number : blocked) {
+            visitor.visit(number, null);
+        }
+    }
+
+    @Override
+    public boolean isBlocked(@NonNull String number) {
+        calls.incrementAndGet();
+        checkFailure(number);
+        return blocked.contains(number);
+    }
+
+    @Override
+    public int blockBatch(@NonNull List<String> numbers) {
+        calls.incrementAndGet();
+        for (String number : numbers) {
+            checkFailure(number);
+        }
+        blocked.addAll(numbers);
+        return numbers.size();
+    }
+
+    @Override
+    public int unblockBatch(@NonNull List<String> numbers) {
+        calls.incrementAndGet();
+        for (String number : numbers) {
+            checkFailure(number);
+        }
+        blocked.removeAll(numbers);
+        return numbers.size();
+    }
+
+    private void checkFailure(String number) {
+        if (number.equals(failOnNumber) || failOnNumbers.contains(number)) {
+            throw new IllegalArgumentException("Rejected number " + number);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class HotNumberTrackerTest {
+
+    @Test
+    public void suggestPatterns_prefixesOfMostCalls() {
+        HotNumberTracker tracker = new HotNumberTracker(100);
+        for (int i = 0; i < 5; i++) {
+            for (int n = 0; n < 4; n++) {
+                tracker.record("+7495123000" + n);
+            }
+            tracker.record("+74961110000");
+        }
+        tracker.record("+74961110001");
+        tracker.record("+74961110002");
+        tracker.record("+15551230001");
+        tracker.record("112");
+
+        assertEquals(5, tracker.getCalls("+74951230003"));
+        List<HotNumberTracker.Suggestion> suggestions = tracker.suggestPatterns(4, 3, 10);
+
+        assertEquals(2, suggestions.size());
+        assertEquals("+7495123****", suggestions.get(0).getPattern());
+        assertEquals(20, suggestions.get(0).getCalls());
+        assertEquals(4, suggestions.get(0).getNumbers());
+        assertEquals("+7496111****", suggestions.get(1).getPattern());
+        assertEquals(7, suggestions.get(1).getCalls());
+        assertEquals("+7495123****: 20 calls from 4 numbers", suggestions.get(0).toString());
+        new PatternExpander(suggestions.get(0).getPattern(), PatternExpander.DEFAULT_PLACEHOLDER);
+
+        assertEquals(1, tracker.suggestPatterns(4, 3, 1).size());
+        assertEquals(1, tracker.suggestPatterns(2, 1, 10).stream().filter(s -> s.getPattern().equals("+749512300**")).count());
+    }
+
+    @Test
+    public void record_forgetsNumbersCalledOnceWhenFull() {
+        HotNumberTracker tracker = new HotNumberTracker(3);
+        tracker.record("1");
+        tracker.record("1");
+        tracker.record("2");
+        tracker.record("3");
+
+        assertEquals(1, tracker.record("4"));
+        assertEquals(2, tracker.size());
+        tracker.record("4");
+        tracker.record("5");
+        assertEquals(3, tracker.size());
+        tracker.record("5");
+        // All tracked numbers called twice, new one is not tracked
+        assertEquals(0, tracker.record("6"));
+        assertEquals(2, tracker.getCalls("1"));
+        assertFalse(tracker.getCalls("6") > 0);
+    }
+
+    @Test
+    public void store_roundTripAddsToLoadedCounts() throws Exception {
+        File directory = File.createTempFile("hot", "");
+        directory.delete();
+        directory.mkdirs();
+        try {
+            HotNumberStore store = new HotNumberStore(directory);
+            HotNumberTracker tracker = new HotNumberTracker(100);
+            store.load(tracker);
+            assertEquals(0, tracker.size());
+            tracker.record("+74951230001");
+            tracker.record("+74951230001");
+            tracker.record("+74951230002");
+            store.save(tracker);
+
+            HotNumberTracker loaded = new HotNumberTracker(100);
+            loaded.record("+74951230001");
+            store.load(loaded);
+
+            assertEquals(3, loaded.getCalls("+74951230001"));
+            assertEquals(1, loaded.getCalls("+74951230002"));
+            assertEquals(2, loaded.size());
+        } finally {
+            new File(directory, HotNumberStore.FILE_NAME).delete();
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.omdvd.phonebulkblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Blocklist backend in memory for benchmarks and load tests off device, safe for many threads.
+ * Every call waits for simulated provider IPC: fixed latency of round trip plus latency per number in call.
+ */
+public class InMemoryBlockListBackend implements BlockListBackend {
+
+    private final Set<String> mBlocked = ConcurrentHashMap.newKeySet();
+    private final AtomicLong mCallsCount = new AtomicLong();
+    private final long mCallLatencyNanos;
+    private final long mNumberLatencyNanos;
+    private volatile int mMaxNumbersPerCall = Integer.MAX_VALUE;
+
+    /**
+     * Backend without simulated latency
+     */
+    public InMemoryBlockListBackend() {
+        this(0, 0);
+    }
+
+    /**
+     * @param callLatencyNanos - simulated latency of one provider round trip in nanoseconds
+     * @param numberLatencyNanos - simulated latency of every number in call in nanoseconds
+     */
+    public InMemoryBlockListBackend(long callLatencyNanos, long numberLatencyNanos) {
+        if (callLatencyNanos < 0 || numberLatencyNanos < 0) {
+            throw new IllegalArgumentException("Latency can not be negative");
+        }
+        mCallLatencyNanos = callLatencyNanos;
+        mNumberLatencyNanos = numberLatencyNanos;
+    }
+
+    /**
+     * Simulate provider transaction limit: calls with more numbers fail without changes
+     *
+     * @param maxNumbersPerCall - max count of numbers in one block or unblock call
+     */
+    public void setMaxNumbersPerCall(int maxNumbersPerCall) {
+        mMaxNumbersPerCall = maxNumbersPerCall;
+    }
+
+    @Override
+    public void readAll(@NonNull EntryVisitor visitor) {
+        simulateCall(mBlocked.size());
+        for (String number : mBlocked) {
+            visitor.visit(number, null);
+        }
+    }
+
+    @Override
+    public boolean isBlocked(@NonNull String number) {
+        simulateCall(1);
+        return mBlocked.contains(number);
+    }
+
+    @Override
+    public int blockBatch(@NonNull List<String> numbers) {
+        simulateCall(numbers.size());
+        checkTransactionSize(numbers);
+        mBlocked.addAll(numbers);
+        return numbers.size();
+    }
+
+    @Override
+    public int unblockBatch(@NonNull List<String> numbers) {
+        simulateCall(numbers.size());
+        checkTransactionSize(numbers);
+        mBlocked.removeAll(numbers);
+        return numbers.size();
+    }
+
+    /**
+     * Fill blocklist without simulated latency and without counting calls
+     *
+     * @param numbers - phone numbers
+     */
+    public void addBlocked(@NonNull Collection<String> numbers) {
+        mBlocked.addAll(numbers);
+    }
+
+    public boolean contains(@NonNull String number) {
+        return mBlocked.contains(number);
+    }
+
+    public int getBlockedCount() {
+        return mBlocked.size();
+    }
+
+    /**
+     * @return count of calls as provider round trips
+     */
+    public long getCallsCount() {
+        return mCallsCount.get();
+    }
+
+    private void checkTransactionSize(List<String> numbers) {
+        if (numbers.size() > mMaxNumbersPerCall) {
+            throw new IllegalArgumentException("Transaction too large: " + numbers.size() + " numbers");
+        }
+    }
+
+    /**
+     * Count call and wait for its simulated latency, park may return early so wait is repeated until deadline.
+     * Like provider IPC, wait is not ended by interrupt, interrupted state is kept for caller.
+     *
+     * @param numbersCount - count of numbers in call
+     */
+    private void simulateCall(int numbersCount) {
+        mCallsCount.incrementAndGet();
+        long latencyNanos = mCallLatencyNanos + mNumberLatencyNanos * numbersCount;
+        if (latencyNanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + latencyNanos;
+        boolean interrupted = false;
+        for (long left = latencyNanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            // Park returns at once while interrupted state is set
+            interrupted |= Thread.interrupted();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class JobEstimatorTest {
+
+    private static final JobPlan PATTERN = JobPlan.of(new PatternExpander("+1555*****", "*"));
+    private static final long MILLI = 1000000;
+
+    private static FakeBlockListBackend backendWithBlocked(int count) {
+        FakeBlockListBackend backend = new FakeBlockListBackend() {
+            @Override
+            public int blockBatch(@NonNull List<String> numbers) {
+                throw new AssertionError("Dry run wrote to blocklist");
+            }
+
+            @Override
+            public int unblockBatch(@NonNull List<String> numbers) {
+                throw new AssertionError("Dry run wrote to blocklist");
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            backend.blocked.add(PATTERN.getNumber(i));
+        }
+        return backend;
+    }
+
+    @Test
+    public void calibrate_usesOnlyReadCalls() throws Exception {
+        FakeBlockListBackend backend = backendWithBlocked(1500);
+
+        JobEstimator.Calibration calibration = JobEstimator.calibrate(backend, PATTERN, null, 16, 4);
+
+        // Sequential and parallel checks, one blocklist read
+        assertEquals(16 + 16 + 1, backend.calls.get());
+        assertEquals(1500, backend.blocked.size());
+        assertEquals(0, calibration.getErrors());
+        assertNotNull(calibration.getSnapshot());
+        assertEquals(1500, calibration.getSnapshot().countBlocked());
+        assertTrue(calibration.getReadAllNanos() > 0);
+        assertTrue(calibration.getParallelSpeedup() >= 1 && calibration.getParallelSpeedup() <= 4);
+    }
+
+    @Test
+    public void estimate_countsCallsOfEveryStrategy() throws Exception {
+        JobEstimator.Calibration calibration = JobEstimator.calibrate(backendWithBlocked(1500), PATTERN, null, 4, 1);
+
+        List<JobEstimator.Estimate> block = JobEstimator.estimate(PATTERN, BulkAction.BLOCK, calibration, 500, 4, 10000);
+        assertEquals(4, block.size());
+        assertEstimate(block.get(0), JobEstimator.STRATEGY_PER_ROW, 100000, 100000);
+        assertEstimate(block.get(1), JobEstimator.STRATEGY_BATCHED, 200, 100000);
+        assertEstimate(block.get(2), JobEstimator.STRATEGY_PARALLEL, 200, 100000);
+        // First shard has 8500 numbers to write in 17 batches, other 9 shards 20 batches each, plus blocklist read
+        assertEstimate(block.get(3), JobEstimator.STRATEGY_DIFF_ONLY, 1 + 17 + 9 * 20, 98500);
+
+        List<JobEstimator.Estimate> unblock = JobEstimator.estimate(PATTERN, BulkAction.UNBLOCK, calibration, 500, 4, 10000);
+        assertEstimate(unblock.get(3), JobEstimator.STRATEGY_DIFF_ONLY, 1 + 3, 1500);
+
+        List<JobEstimator.Estimate> check = JobEstimator.estimate(PATTERN, BulkAction.CHECK, calibration, 500, 4, 10000);
+        assertEstimate(check.get(1), JobEstimator.STRATEGY_BATCHED, 100000, 100000);
+        assertEstimate(check.get(3), JobEstimator.STRATEGY_DIFF_ONLY, 1, 0);
+    }
+
+    @Test
+    public void estimate_predictsDurationAndMemory() {
+        BlockListSnapshot snapshot = new BlockListSnapshot(NumberRangeSet.of(NumberRange.parse("+155500000..+155501499")));
+        JobEstimator.Calibration calibration = new JobEstimator.Calibration(MILLI, 8, 50 * MILLI, 0, snapshot, 0);
+
+        List<JobEstimator.Estimate> estimates = JobEstimator.estimate(PATTERN, BulkAction.BLOCK, calibration, 500, 4, 10000);
+
+        assertEquals(100000 * MILLI, estimates.get(0).getDurationNanos());
+        assertEquals(200 * MILLI, estimates.get(1).getDurationNanos());
+        // Speedup is limited by count of workers
+        assertEquals(50 * MILLI, estimates.get(2).getDurationNanos());
+        assertEquals(50 * MILLI + 197 * MILLI / 4, estimates.get(3).getDurationNanos());
+
+        long planBytes = 2 * JobEstimator.BYTES_PER_RANGE;
+        assertEquals(planBytes + JobEstimator.BYTES_PER_NUMBER, estimates.get(0).getPeakMemoryBytes());
+        assertEquals(planBytes + 500 * JobEstimator.BYTES_PER_NUMBER, estimates.get(1).getPeakMemoryBytes());
+        assertEquals(planBytes + 4 * 500 * JobEstimator.BYTES_PER_NUMBER, estimates.get(2).getPeakMemoryBytes());
+        assertEquals(planBytes + 2 * JobEstimator.BYTES_PER_RANGE + 4 * 500 * JobEstimator.BYTES_PER_NUMBER, estimates.get(3).getPeakMemoryBytes());
+        assertEquals("parallel: 200 calls, 100000 numbers, 00m:00s, 126 KB", estimates.get(2).toString());
+
+        String report = JobEstimator.formatReport(PATTERN, BulkAction.BLOCK, calibration, estimates);
+        assertTrue(report, report.startsWith("Dry run of block +1555*****: 100000 numbers in 1 ranges."));
+        assertTrue(report, report.contains("\n1500 numbers of plan are blocked now."));
+        assertTrue(report, report.endsWith("\n" + estimates.get(3)));
+    }
+
+    @Test
+    public void estimate_withoutSnapshot_skipsDiffOnly() {
+        JobEstimator.Calibration calibration = new JobEstimator.Calibration(MILLI, 1, -1, 0, null, 1);
+
+        List<JobEstimator.Estimate> estimates = JobEstimator.estimate(PATTERN, BulkAction.BLOCK, calibration, 500, 4, 10000);
+
+        assertEquals(3, estimates.size());
+        assertTrue(JobEstimator.formatReport(PATTERN, BulkAction.BLOCK, calibration, estimates).contains("\n1 calibration calls failed."));
+    }
+
+    private static void assertEstimate(JobEstimator.Estimate estimate, String strategy, long calls, long numbers) {
+        assertEquals(strategy, estimate.getStrategy());
+        assertEquals(strategy, calls, estimate.getCalls());
+        assertEquals(strategy, numbers, estimate.getNumbers());
+    }
+}
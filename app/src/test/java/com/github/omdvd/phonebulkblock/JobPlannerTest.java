@@ -0,0 +1,82 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class JobPlannerTest {
+
+    @Test
+    public void plan_mergesContainedPattern() {
+        JobPlan plan = JobPlanner.plan("+1555123****, +15551234***");
+
+        assertEquals(1, plan.getRanges().size());
+        assertEquals(10000, plan.getNumbersCount());
+        assertEquals(11000, plan.getInputNumbersCount());
+        assertEquals(1000, plan.getDuplicatesCount());
+        assertEquals("+1555123****", plan.toString());
+    }
+
+    @Test
+    public void plan_mergesAdjacentAndOverlappingRanges() {
+        JobPlan plan = JobPlanner.plan("+155500**;+15550010..+15550150\n15550100..15550299; +1666****");
+
+        assertEquals(2, plan.getRanges().size());
+        assertEquals("+15550000..+15550299,+1666****", plan.toString());
+        assertEquals(300 + 10000, plan.getNumbersCount());
+        assertEquals(100 + 141 + 200 + 10000, plan.getInputNumbersCount());
+    }
+
+    @Test
+    public void toString_parsesBackWithLargeAlignedRange() {
+        JobPlan plan = JobPlanner.plan("+7400000000..+7499999999, +15550000..+15559999");
+
+        assertEquals(100_000_000L + 10000, plan.getNumbersCount());
+        // 10^8 numbers need more placeholders than pattern may have, range is written by its bounds
+        assertEquals("+1555****,+7400000000..+7499999999", plan.toString());
+        JobPlan parsed = JobPlanner.plan(plan.toString());
+        assertEquals(plan.toString(), parsed.toString());
+        assertEquals(plan.getNumbersCount(), parsed.getNumbersCount());
+    }
+
+    @Test
+    public void plan_keepsRangesOfDifferentLength() {
+        JobPlan plan = JobPlanner.plan("+1555***, +1555****, 1555000");
+
+        assertEquals(2, plan.getRanges().size());
+        assertEquals(1, plan.getDuplicatesCount());
+        assertEquals(0, plan.indexOf("+1555000"));
+        assertEquals(1000, plan.indexOf("+15550000"));
+        assertEquals(-1, plan.indexOf("+155500000"));
+    }
+
+    @Test
+    public void plan_indexesMatchNumbers() {
+        JobPlan plan = JobPlanner.plan("+1555***, +7495000..+7495010, 12345, +1555500..+1555600");
+        Set<String> numbers = new HashSet<>();
+        for (long i = 0; i < plan.getNumbersCount(); i++) {
+            String number = plan.getNumber(i);
+            assertTrue(numbers.add(number));
+            assertEquals(i, plan.indexOf(number));
+        }
+        assertEquals(1000 + 11 + 1, numbers.size());
+    }
+
+    @Test
+    public void parse_rejectsWrongItems() {
+        String[] inputs = {"", " , ;", "+1555..+15551", "+1555*-*", "abc", "+1555009..+1555001"};
+        for (String input : inputs) {
+            try {
+                JobPlanner.plan(input);
+                fail("Input accepted: " + input);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_boundsContainValue() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue("value " + value, LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0) {
+                assertTrue("value " + value, LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void getPercentile_withinBucketError() {
+        Random random = new Random(11);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.exp(random.nextDouble() * 15) * 100);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long estimated = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + estimated + " vs " + exact, estimated >= exact && estimated <= exact * 1.125 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void add_mergesHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(1000);
+        second.record(-5);
+
+        first.add(second);
+
+        assertEquals(3, first.getCount());
+        assertEquals(1000, first.getMax());
+        assertEquals(0, first.getPercentile(0));
+        assertEquals(1000, first.getPercentile(100));
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MappedPatternIndexTest {
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = File.createTempFile("patterns", "");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : mDirectory.listFiles()) {
+            file.delete();
+        }
+        mDirectory.delete();
+    }
+
+    private static List<PatternExpander> randomPatterns(Random random, int count) {
+        List<PatternExpander> expanders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expanders.add(new PatternExpander(String.format("+1%08d**", (long) (random.nextDouble() * 1e8)), "*"));
+        }
+        return expanders;
+    }
+
+    @Test
+    public void writeAndOpen_sameMatchesAsHeapIndex() throws Exception {
+        Random random = new Random(7);
+        PatternIndex index = PatternIndex.build(randomPatterns(random, 10000));
+        File file = new File(mDirectory, "index.idx");
+
+        MappedPatternIndex.write(index, file);
+        MappedPatternIndex mapped = MappedPatternIndex.open(file);
+
+        assertEquals(index.getRangesCount(), mapped.getRangesCount());
+        for (int i = 0; i < 100000; i++) {
+            String number = String.format("+1%010d", (long) (random.nextDouble() * 1e10));
+            assertEquals(number, index.matches(number), mapped.matches(number));
+        }
+        assertFalse(mapped.matches("+1"));
+    }
+
+    @Test
+    public void open_rejectsOtherVersion() throws Exception {
+        File file = new File(mDirectory, "index.idx");
+        MappedPatternIndex.write(PatternIndex.build(randomPatterns(new Random(1), 10)), file);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(4);
+            output.writeInt(MappedPatternIndex.VERSION + 1);
+        }
+
+        try {
+            MappedPatternIndex.open(file);
+            fail("Index of other version opened");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void store_recompilesMissingIndex() throws Exception {
+        ScreeningPatternStore store = new ScreeningPatternStore(mDirectory);
+        store.add("+7495123****");
+        store.add("+1555***");
+        store.getIndexFile().delete();
+
+        MappedPatternIndex index = store.openIndex();
+
+        assertTrue(index.matches("+74951234567"));
+        assertTrue(index.matches("+1555000"));
+        assertFalse(index.matches("+1556000"));
+    }
+
+    @Test
+    public void benchmark_openToFirstLookup() throws Exception {
+        Random random = new Random(3);
+        List<PatternExpander> expanders = randomPatterns(random, 1000000);
+        File file = new File(mDirectory, "index.idx");
+        MappedPatternIndex.write(PatternIndex.build(expanders), file);
+        String number = expanders.get(12345).getNumber(42);
+
+        MappedPatternIndex mapped = MappedPatternIndex.open(file);
+        assertTrue(mapped.matches(number));
+        assertTrue(PatternIndex.build(expanders).matches(number));
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class NumberCanonicalizerTest {
+
+    private static final NumberCanonicalizer RU = new NumberCanonicalizer("7", "8", 10);
+
+    @Test
+    public void canonicalize_nationalAndInternationalForms() {
+        assertEquals("+74951234567", RU.canonicalize("+7 (495) 123-45-67"));
+        assertEquals("+74951234567", RU.canonicalize("8-495-123-45-67"));
+        assertEquals("+74951234567", RU.canonicalize("74951234567"));
+        assertEquals("+74951234567", RU.canonicalize("4951234567"));
+        assertEquals("+74951234567", RU.canonicalize("0074951234567"));
+        assertEquals("+15551234567", RU.canonicalize("0015551234567"));
+        // Short and unknown numbers are kept as they are
+        assertEquals("112", RU.canonicalize("112"));
+        assertEquals("*100#", RU.canonicalize("*100#"));
+        assertEquals("", RU.canonicalize(""));
+    }
+
+    @Test
+    public void canonicalize_withoutNationalLength() {
+        NumberCanonicalizer canonicalizer = new NumberCanonicalizer("44", "0", 0);
+
+        assertEquals("+442071234567", canonicalizer.canonicalize("020 7123 4567"));
+        assertEquals("+442071234567", canonicalizer.canonicalize("+44 20 7123 4567"));
+        assertEquals("2071234567", canonicalizer.canonicalize("2071234567"));
+    }
+
+    @Test
+    public void canonicalizeRange_replacesPrefixOnce() {
+        assertEquals("+7495123****", RU.canonicalize(JobPlanner.parse("8495123****").get(0)).toString());
+        assertEquals("+7495123****", RU.canonicalize(JobPlanner.parse("495123****").get(0)).toString());
+        assertEquals("+7495123****", RU.canonicalize(JobPlanner.parse("7495123****").get(0)).toString());
+        assertEquals("+74951230005..+74951230120", RU.canonicalize(NumberRange.parse("84951230005..84951230120")).toString());
+
+        // Range over forms with country code and with trunk prefix is kept
+        NumberRange mixed = NumberRange.parse("79999999999..80000000001");
+        assertSame(mixed, RU.canonicalize(mixed));
+        NumberRange shortRange = NumberRange.parse("100..199");
+        assertSame(shortRange, RU.canonicalize(shortRange));
+    }
+
+    @Test
+    public void canonicalizeRange_matchesCanonicalNumbers() {
+        NumberRange range = NumberRange.parse("84951230000..84951230999");
+        NumberRange canonical = RU.canonicalize(range);
+
+        assertEquals(range.getSize(), canonical.getSize());
+        for (long i = 0; i < range.getSize(); i += 37) {
+            assertEquals(RU.canonicalize(range.getNumber(i)), canonical.getNumber(i));
+        }
+    }
+
+    @Test
+    public void plan_mergesNumbersWrittenInDifferentForms() {
+        JobPlan plan = JobPlanner.plan("8495123****; +7495123****, 4951239999", RU);
+
+        assertEquals("+7495123****", plan.toString());
+        assertEquals(10000, plan.getNumbersCount());
+        assertEquals(20001, plan.getInputNumbersCount());
+        assertEquals("+74951230000", plan.getNumber(0));
+    }
+
+    @Test
+    public void snapshot_findsNationalEntriesOfCanonicalPlan() throws Exception {
+        JobPlan plan = JobPlanner.plan("8495123****", RU);
+        FakeBlockListBackend backend = new FakeBlockListBackend();
+        backend.blocked.add("84951230001");
+        backend.blocked.add("+74951230002");
+        backend.blocked.add("4951230003");
+        backend.blocked.add("84961230004");
+
+        assertEquals(1, BlockListSnapshot.read(backend, plan).countBlocked());
+        BlockListSnapshot snapshot = BlockListSnapshot.read(backend, plan, RU);
+
+        assertEquals(3, snapshot.countBlocked());
+        assertTrue(snapshot.isBlocked("+74951230001"));
+        assertTrue(snapshot.isBlocked("+74951230003"));
+        assertFalse(snapshot.isBlocked("+74961230004"));
+    }
+
+    @Test
+    public void cache_evictsLeastRecentlyUsed() {
+        CanonicalNumberCache cache = new CanonicalNumberCache(RU, 2);
+
+        assertEquals("+74951234567", cache.canonicalize("84951234567"));
+        assertEquals("+74951234568", cache.canonicalize("84951234568"));
+        assertEquals("+74951234567", cache.canonicalize("84951234567"));
+        assertEquals("+74951234569", cache.canonicalize("84951234569"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        // Recently used number stays, eldest one was evicted
+        cache.canonicalize("84951234567");
+        assertEquals(2, cache.getHits());
+        cache.canonicalize("84951234568");
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void settings_parseAndStore() throws Exception {
+        assertEquals("7,8,10", NumberCanonicalizer.parse(" +7, 8, 10 ").toString());
+        assertEquals("1,,0", NumberCanonicalizer.parse("1").toString());
+        assertNull(NumberCanonicalizer.parse(" "));
+        for (String wrong : Arrays.asList("0", "7,888", "7,8,x", "7,8,10,1", "1234")) {
+            try {
+                NumberCanonicalizer.parse(wrong);
+                throw new AssertionError("Parsed " + wrong);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+
+        File directory = File.createTempFile("country", "");
+        directory.delete();
+        directory.mkdir();
+        CountrySettingsStore store = new CountrySettingsStore(directory);
+        assertNull(store.load());
+        store.save(RU);
+        assertEquals(RU.toString(), store.load().toString());
+        store.save(null);
+        assertNull(store.load());
+        assertFalse(store.getFile().exists());
+        directory.delete();
+    }
+}
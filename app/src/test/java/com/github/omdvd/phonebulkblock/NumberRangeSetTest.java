@@ -0,0 +1,174 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class NumberRangeSetTest {
+
+    // Numbers of 1..3 digits, so random ranges often touch and cross digits boundaries
+    private static final int MAX_DIGITS = 3;
+    private static final int ROUNDS = 500;
+
+    @Test
+    public void builder_mergesOverlappingAndAdjacentRanges() {
+        NumberRangeSet set = NumberRangeSet.of(JobPlanner.parse("5550..5559, 5560..5569, 5565..5580, 5590"));
+
+        assertEquals("5550..5580,5590", set.toString());
+        assertEquals(32, set.getSize());
+        assertEquals(2, set.getRangesCount());
+    }
+
+    @Test
+    public void builder_keepsDigitsCountsApart() {
+        // 9 and 10 have consecutive keys but different count of digits
+        NumberRangeSet set = NumberRangeSet.of(JobPlanner.parse("0..9, 00..99"));
+
+        assertEquals(2, set.getRangesCount());
+        assertEquals(110, set.getSize());
+        assertTrue(set.contains("9"));
+        assertTrue(set.contains("09"));
+        assertFalse(set.contains("009"));
+    }
+
+    @Test
+    public void contains_ignoresPlusAndSeparators() {
+        NumberRangeSet set = NumberRangeSet.parse("+7495123****");
+
+        assertTrue(set.contains("+74951230042"));
+        assertTrue(set.contains("7 (495) 123-00-42"));
+        assertFalse(set.contains("+7495124004"));
+        assertFalse(set.contains("+749512400420"));
+        assertFalse(set.contains(""));
+    }
+
+    @Test
+    public void parse_emptyText() {
+        assertTrue(NumberRangeSet.parse(" ").isEmpty());
+        assertEquals(NumberRangeSet.EMPTY, NumberRangeSet.parse(NumberRangeSet.EMPTY.toString()));
+    }
+
+    @Test
+    public void builder_unsortedNumbersCompacted() {
+        NumberRangeSet.Builder builder = new NumberRangeSet.Builder();
+        List<Long> keys = new ArrayList<>();
+        for (long value = 0; value < 100000; value++) {
+            keys.add(PatternIndex.toKey(7, 5550000 + value));
+        }
+        Collections.shuffle(keys, new Random(1));
+        for (long key : keys) {
+            builder.add(key);
+        }
+
+        NumberRangeSet set = builder.build();
+
+        assertEquals("5550000..5649999", set.toString());
+    }
+
+    @Test
+    public void operations_matchReferenceSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < ROUNDS; round++) {
+            TreeSet<Long> firstKeys = new TreeSet<>();
+            TreeSet<Long> secondKeys = new TreeSet<>();
+            NumberRangeSet first = randomSet(random, firstKeys);
+            NumberRangeSet second = randomSet(random, secondKeys);
+
+            assertSame(firstKeys, first);
+            assertEquals(first, NumberRangeSet.parse(first.toString()));
+
+            TreeSet<Long> union = new TreeSet<>(firstKeys);
+            union.addAll(secondKeys);
+            assertSame(union, first.union(second));
+
+            TreeSet<Long> difference = new TreeSet<>(firstKeys);
+            difference.removeAll(secondKeys);
+            assertSame(difference, first.difference(second));
+
+            TreeSet<Long> intersection = new TreeSet<>(firstKeys);
+            intersection.retainAll(secondKeys);
+            assertSame(intersection, first.intersection(second));
+
+            long from = randomKey(random);
+            long to = randomKey(random);
+            if (from > to) {
+                long key = from;
+                from = to;
+                to = key;
+            }
+            assertSame(new TreeSet<>(firstKeys.subSet(from, true, to, true)), first.subSet(from, to));
+        }
+    }
+
+    @Test
+    public void plan_minusCompletedNumbers() {
+        JobPlan plan = JobPlanner.plan("+1555000***, 1666***");
+        NumberRangeSet done = NumberRangeSet.of(JobPlanner.parse("1555000000..1555000099, 1555000500..1555000999, 1666000..1666099"));
+
+        JobPlan left = plan.minus(done);
+
+        assertEquals("1666100..1666999,+1555000100..+1555000499", left.toString());
+        assertEquals(plan.getNumbersCount() - plan.getNumbers().intersection(done).getSize(), left.getNumbersCount());
+        assertEquals(left.getNumbersCount(), left.getInputNumbersCount());
+        assertEquals(0, left.getNumbers().intersection(done).getSize());
+    }
+
+    private static NumberRangeSet randomSet(Random random, TreeSet<Long> keys) {
+        NumberRangeSet.Builder builder = new NumberRangeSet.Builder();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            int digits = 1 + random.nextInt(MAX_DIGITS);
+            long max = NumberCursor.pow10(digits) - 1;
+            long first = (long) (random.nextDouble() * (max + 1));
+            long last = Math.min(max, first + random.nextInt(random.nextBoolean() ? 3 : 40));
+            if (random.nextBoolean()) {
+                builder.add(new NumberRange(random.nextBoolean(), digits, first, last));
+            } else {
+                for (long value = last; value >= first; value--) {
+                    builder.add(PatternIndex.toKey(digits, value));
+                }
+            }
+            for (long value = first; value <= last; value++) {
+                keys.add(PatternIndex.toKey(digits, value));
+            }
+        }
+        return builder.build();
+    }
+
+    private static long randomKey(Random random) {
+        int digits = 1 + random.nextInt(MAX_DIGITS);
+        return PatternIndex.toKey(digits, (long) (random.nextDouble() * NumberCursor.pow10(digits)));
+    }
+
+    private static void assertSame(TreeSet<Long> expected, NumberRangeSet actual) {
+        assertEquals(expected.size(), actual.getSize());
+        List<Long> keys = new ArrayList<>();
+        long previousEnd = Long.MIN_VALUE;
+        for (int i = 0; i < actual.getRangesCount(); i++) {
+            long start = actual.getStartKey(i);
+            long end = actual.getEndKey(i);
+            assertTrue("Ranges not sorted or not merged: " + actual, start > previousEnd);
+            assertEquals(PatternIndex.keyDigits(start), PatternIndex.keyDigits(end));
+            for (long key = start; key <= end; key++) {
+                keys.add(key);
+            }
+            previousEnd = end;
+        }
+        assertEquals(new ArrayList<>(expected), keys);
+        for (long key : Arrays.asList(PatternIndex.toKey(1, 0), PatternIndex.toKey(2, 50), PatternIndex.toKey(MAX_DIGITS, 999))) {
+            assertEquals(expected.contains(key), actual.contains(key));
+        }
+        for (long key : expected) {
+            assertTrue(actual.contains(key));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+public class PatternExpanderTest {
+
+    @Test
+    public void parse_prefixAndPlaceholders() {
+        PatternExpander expander = new PatternExpander(" +123-45-678-90** ", "*");
+
+        assertEquals("+1234567890", expander.getPrefix());
+        assertEquals(2, expander.getPlaceholdersCount());
+        assertEquals(100, expander.getNumbersCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_missingPlaceholders() {
+        new PatternExpander("+1234567890", "*");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_tooManyPlaceholders() {
+        new PatternExpander("+1********", "*");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_placeholderInMiddle() {
+        new PatternExpander("+1*2**", "*");
+    }
+
+    @Test
+    public void iterate_matchesStringFormat() {
+        PatternExpander expander = new PatternExpander("+7495***", "*");
+        Iterator<CharSequence> numbers = expander.iterator();
+
+        for (int i = 0; i < expander.getNumbersCount(); i++) {
+            assertEquals(String.format("%s%03d", "+7495", i), numbers.next().toString());
+        }
+        assertFalse(numbers.hasNext());
+    }
+
+    @Test
+    public void cursor_subRange() {
+        PatternExpander expander = new PatternExpander("555****", "*");
+        NumberCursor cursor = expander.cursor(1998, 2001);
+
+        assertSame(cursor, cursor.next());
+        assertEquals("5551998", cursor.toString());
+        assertEquals("5551999", cursor.next().toString());
+        assertEquals("5552000", cursor.next().toString());
+        assertEquals(2000, cursor.getIndex());
+        assertFalse(cursor.hasNext());
+        assertEquals("+15550009", new PatternExpander("+1555****", "*").getNumber(9));
+    }
+
+    @Test
+    public void cursor_matchesStringFormat() {
+        PatternExpander expander = new PatternExpander("+7495123*******", "*");
+        long numbersCount = expander.getNumbersCount() / 100;
+        NumberCursor cursor = expander.cursor(0, numbersCount);
+        for (int i = 0; i < numbersCount; i++) {
+            assertTrue(cursor.hasNext());
+            assertEquals(String.format("%s%0" + expander.getPlaceholdersCount() + "d", expander.getPrefix(), i), cursor.next().toString());
+        }
+        assertFalse(cursor.hasNext());
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PatternIndexTest {
+
+    private static List<PatternExpander> patterns(String... patterns) {
+        List<PatternExpander> expanders = new ArrayList<>();
+        for (String pattern : patterns) {
+            expanders.add(new PatternExpander(pattern, "*"));
+        }
+        return expanders;
+    }
+
+    @Test
+    public void matches_patternNumbersOnly() {
+        PatternIndex index = PatternIndex.build(patterns("+7495123****", "+1555***"));
+
+        assertTrue(index.matches("+74951230000"));
+        assertTrue(index.matches("+74951239999"));
+        assertTrue(index.matches("7 (495) 123-45-67"));
+        assertTrue(index.matches("+1555042"));
+        assertFalse(index.matches("+74951240000"));
+        assertFalse(index.matches("+7495123000"));
+        assertFalse(index.matches("+749512300000"));
+        assertFalse(index.matches("+1555"));
+        assertFalse(index.matches(""));
+        assertFalse(index.matches("anonymous"));
+    }
+
+    @Test
+    public void build_mergesOverlappingPatterns() {
+        PatternIndex index = PatternIndex.build(patterns("+1555123****", "+15551234***", "+1555124****", "+1999*"));
+
+        assertEquals(2, index.getRangesCount());
+        assertTrue(index.matches("+15551240001"));
+        assertTrue(index.matches("+19995"));
+    }
+
+    @Test
+    public void keys_differentLengthsDoNotOverlap() {
+        assertTrue(PatternIndex.toKey("9") < PatternIndex.toKey("00"));
+        assertTrue(PatternIndex.toKey("99") < PatternIndex.toKey("000"));
+        assertEquals(PatternIndex.NO_KEY, PatternIndex.toKey("1234567890123456789"));
+    }
+
+    @Test
+    public void benchmark_lookupLatency() {
+        Random random = new Random(42);
+        List<PatternExpander> expanders = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            int placeholders = 1 + random.nextInt(4);
+            StringBuilder pattern = new StringBuilder("+1");
+            for (int digit = 0; digit < 10 - placeholders; digit++) {
+                pattern.append((char) ('0' + random.nextInt(10)));
+            }
+            for (int digit = 0; digit < placeholders; digit++) {
+                pattern.append('*');
+            }
+            expanders.add(new PatternExpander(pattern.toString(), "*"));
+        }
+        PatternIndex index = PatternIndex.build(expanders);
+
+        String[] numbers = new String[1000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = (i % 2 == 0)
+                    ? expanders.get(random.nextInt(expanders.size())).getNumber(0)
+                    : String.format("+1%010d", (long) (random.nextDouble() * 1e10));
+        }
+
+        int rounds = 1000;
+        long[] roundNanos = new long[rounds];
+        int matched = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (String number : numbers) {
+                if (index.matches(number)) {
+                    matched++;
+                }
+            }
+            roundNanos[round] = System.nanoTime() - start;
+        }
+        Arrays.sort(roundNanos);
+        double p99Nanos = (double) roundNanos[rounds * 99 / 100] / numbers.length;
+
+        assertTrue(matched >= rounds * numbers.length / 2);
+        assertTrue(p99Nanos < 1000000);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.omdvd.phonebulkblock;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ProgressSamplerTest {
+
+    @Test
+    public void constantSpeed() {
+        ProgressSampler sampler = new ProgressSampler(10000, 0, 10);
+
+        for (long now = 100; now <= 2000; now += 100) {
+            sampler.sample(now, now);
+        }
+
+        assertEquals(1000f, sampler.getSpeed(), 0.01f);
+        assertEquals(8000, sampler.getEstimatedMillis());
+        assertEquals(2000, sampler.getElapsedMillis());
+        assertEquals(2000, sampler.getProcessed());
+    }
+
+    @Test
+    public void speedFollowsSlidingWindow() {
+        ProgressSampler sampler = new ProgressSampler(1000000, 0, 10);
+        long processed = 0;
+
+        // Fast start, 100 numbers per tick
+        for (long now = 100; now <= 5000; now += 100) {
+            processed += 100;
+            sampler.sample(now, processed);
+        }
+        assertEquals(1000f, sampler.getSpeed(), 0.01f);
+
+        // Provider slows down to 10 numbers per tick, lifetime average would still be far above
+        for (long now = 5100; now <= 7000; now += 100) {
+            processed += 10;
+            sampler.sample(now, processed);
+        }
+        assertEquals(100f, sampler.getSpeed(), 0.01f);
+        assertEquals((1000000 - processed) * 10, sampler.getEstimatedMillis());
+    }
+
+    @Test
+    public void noProgress_unknownEstimate() {
+        ProgressSampler sampler = new ProgressSampler(100, 0, 10);
+
+        sampler.sample(100, 0);
+        sampler.sample(200, 0);
+
+        assertEquals(0f, sampler.getSpeed(), 0f);
+        assertEquals(-1, sampler.getEstimatedMillis());
+    }
+}